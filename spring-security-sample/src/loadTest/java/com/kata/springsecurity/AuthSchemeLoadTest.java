@@ -0,0 +1,58 @@
+package com.kata.springsecurity;
+
+import com.kata.springsecurity.load.LoadGenerator;
+import com.kata.springsecurity.load.LoadResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coût par requête du schéma HTTP Basic en mémoire (DevSecurityConfig), à comparer aux tirs identiques
+ * de spring-security-with-jwt et spring-security-with-jdbc. Application complète sur un port aléatoire.
+ * Pas de login ni de logout en HTTP Basic : les identifiants sont vérifiés à chaque requête.
+ */
+class AuthSchemeLoadTest {
+
+    private static final String SCHEME = "basic";
+
+    @Test
+    void inMemoryHttpBasic() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringSecurityApplication.class)
+                .run("--server.port=0", "--logging.level.root=WARN");
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            String baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            // utilisateurs définis dans DevSecurityConfig
+            String user = basic("user", "password");
+            String admin = basic("admin", "adminpass");
+
+            LoadGenerator generator = new LoadGenerator(client);
+            generator.run(SCHEME, "public", () -> get(baseUrl + "/api/public").build(), 200);
+            generator.run(SCHEME, "protected", () -> get(baseUrl + "/api/protected").header("Authorization", user).build(), 200);
+            generator.run(SCHEME, "admin", () -> get(baseUrl + "/api/admin").header("Authorization", admin).build(), 200);
+
+            LoadResult.print(generator.results());
+            assertThat(generator.results()).allSatisfy(result -> assertThat(result.errors()).isZero());
+        }
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(LoadGenerator.requestTimeout()).GET();
+    }
+}
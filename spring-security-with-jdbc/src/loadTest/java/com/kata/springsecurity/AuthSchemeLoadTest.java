@@ -0,0 +1,70 @@
+package com.kata.springsecurity;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.load.LoadGenerator;
+import com.kata.springsecurity.load.LoadResult;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coût par requête du schéma HTTP Basic + BCrypt (utilisateurs en base), à comparer aux tirs identiques
+ * de spring-security-with-jwt et spring-security-sample. Application complète sur un port aléatoire,
+ * base H2, configuration par défaut (caches des utilisateurs et des identifiants actifs).
+ * Pas de login ni de logout en HTTP Basic : les identifiants sont vérifiés à chaque requête.
+ */
+class AuthSchemeLoadTest {
+
+    private static final String SCHEME = "jdbc";
+
+    @Test
+    void httpBasicWithBcrypt() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringSecurityApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:auth-scheme-load;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            String baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            CustomUserRepository userRepository = context.getBean(CustomUserRepository.class);
+            String password = context.getBean(BCryptPasswordEncoder.class).encode("secret");
+            userRepository.save(CustomUser.builder().username("load-user").password(password).roleMask(Role.USER.bit()).build());
+            userRepository.save(CustomUser.builder().username("load-admin").password(password).roleMask(Role.mask(Role.ADMIN, Role.USER)).build());
+            String user = basic("load-user", "secret");
+            String admin = basic("load-admin", "secret");
+
+            LoadGenerator generator = new LoadGenerator(client);
+            generator.run(SCHEME, "public", () -> get(baseUrl + "/api/public").build(), 200);
+            generator.run(SCHEME, "protected", () -> get(baseUrl + "/api/protected").header("Authorization", user).build(), 200);
+            generator.run(SCHEME, "admin", () -> get(baseUrl + "/api/admin").header("Authorization", admin).build(), 200);
+
+            LoadResult.print(generator.results());
+            assertThat(generator.results()).allSatisfy(result -> assertThat(result.errors()).isZero());
+        }
+    }
+
+    private static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(LoadGenerator.requestTimeout()).GET();
+    }
+}
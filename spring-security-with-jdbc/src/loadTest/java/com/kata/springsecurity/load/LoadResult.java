@@ -0,0 +1,56 @@
+package com.kata.springsecurity.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Résultat d'un tir : latences en microsecondes (HdrHistogram), débit et erreurs
+ * (statut inattendu, timeout ou connexion refusée ; non comptées dans l'histogramme).
+ */
+public record LoadResult(String scheme, String scenario, String mode, long startMillis,
+                         Histogram histogram, long errors, double seconds) {
+
+    public double throughput() {
+        return histogram.getTotalCount() / seconds;
+    }
+
+    public double percentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Écrit {@code <scheme>/<scenario>-<mode>.hgrm} (distribution en ms, lisible par le HdrHistogram plotter)
+     * et {@code .hlog} (histogramme complet, pour HistogramLogProcessor ou une comparaison entre builds).
+     */
+    public void write(Path outputDir) throws IOException {
+        Path dir = Files.createDirectories(outputDir.resolve(scheme));
+        String name = scenario + "-" + mode;
+        try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(name + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(name + ".hlog")))) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLegend();
+            writer.outputIntervalHistogram(histogram);
+        }
+    }
+
+    public static void print(List<LoadResult> results) {
+        System.out.printf("%-8s %-10s %-10s %10s %10s %10s %10s %8s%n",
+                "scheme", "scenario", "mode", "req/s", "p50 (ms)", "p99 (ms)", "p999 (ms)", "errors");
+        for (LoadResult result : results) {
+            System.out.printf("%-8s %-10s %-10s %10.0f %10.2f %10.2f %10.2f %8d%n",
+                    result.scheme(), result.scenario(), result.mode(), result.throughput(),
+                    result.percentileMillis(50), result.percentileMillis(99), result.percentileMillis(99.9), result.errors());
+        }
+    }
+}
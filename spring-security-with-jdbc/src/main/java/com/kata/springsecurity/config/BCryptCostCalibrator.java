@@ -0,0 +1,80 @@
+package com.kata.springsecurity.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Choix du coût BCrypt au démarrage, d'après la machine : quelques hachages au coût 8 (~15 ms chacun)
+ * sont mesurés, puis extrapolés (chaque +1 de coût double le temps) jusqu'au coût le plus élevé qui tient
+ * dans le budget de latence, borné par [min, max]. Le minimum est un plancher de sécurité : il est
+ * gardé même si la machine est trop lente pour tenir le budget.
+ * <p>
+ * Sur un parc hétérogène, chaque noeud choisirait son propre coût : fixer alors app.password.bcrypt.strength
+ * à la valeur calibrée (elle est journalisée au démarrage).
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    static final int PROBE_STRENGTH = 8;
+    private static final int PROBE_WARMUP = 2;
+    private static final int PROBE_ROUNDS = 5;
+    // bornes de BCryptPasswordEncoder
+    private static final int LOWEST_STRENGTH = 4;
+    private static final int HIGHEST_STRENGTH = 31;
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * @return le coût le plus élevé dont un hachage tient dans target sur cette machine, entre minStrength et maxStrength
+     * @throws IllegalArgumentException si les bornes sont hors de [4, 31] ou inversées
+     */
+    public static int calibrate(Duration target, int minStrength, int maxStrength) {
+        if (minStrength < LOWEST_STRENGTH || maxStrength > HIGHEST_STRENGTH || minStrength > maxStrength) {
+            throw new IllegalArgumentException("Invalid BCrypt strength range: " + minStrength + ".." + maxStrength);
+        }
+        long probeNanos = measure();
+        int strength = strengthFor(target.toNanos(), probeNanos, minStrength, maxStrength);
+        long estimatedMillis = Duration.ofNanos((long) estimate(probeNanos, strength)).toMillis();
+        if (estimatedMillis > target.toMillis()) {
+            log.warn("BCrypt strength {} (minimum) takes about {} ms per hash, over the {} ms target",
+                    strength, estimatedMillis, target.toMillis());
+        } else {
+            log.info("BCrypt strength {} selected: about {} ms per hash, target {} ms",
+                    strength, estimatedMillis, target.toMillis());
+        }
+        return strength;
+    }
+
+    static int strengthFor(long targetNanos, long probeNanos, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        while (strength < maxStrength && estimate(probeNanos, strength + 1) <= targetNanos) {
+            strength++;
+        }
+        return strength;
+    }
+
+    // durée estimée d'un hachage : 2^strength tours, le temps mesuré au coût de la mesure mis à l'échelle
+    static double estimate(long probeNanos, int strength) {
+        return Math.scalb((double) probeNanos, strength - PROBE_STRENGTH);
+    }
+
+    // médiane, après quelques hachages de chauffe (compilation JIT)
+    private static long measure() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(PROBE_STRENGTH);
+        for (int i = 0; i < PROBE_WARMUP; i++) {
+            encoder.encode("calibration");
+        }
+        long[] samples = new long[PROBE_ROUNDS];
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[PROBE_ROUNDS / 2];
+    }
+}
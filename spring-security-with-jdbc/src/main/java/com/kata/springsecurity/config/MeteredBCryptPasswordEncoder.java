@@ -0,0 +1,62 @@
+package com.kata.springsecurity.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BCryptPasswordEncoder} qui mesure chaque hachage (inscription) et chaque vérification
+ * (login, via le DaoAuthenticationProvider) : métrique auth.password.bcrypt, tag operation.
+ * Le coût est fixé ou calibré au démarrage (voir {@link BCryptCostCalibrator}).
+ */
+public class MeteredBCryptPasswordEncoder extends BCryptPasswordEncoder implements MeterBinder {
+
+    // renseignés quand les métriques sont branchées
+    private volatile Timer encodeTimer;
+    private volatile Timer matchesTimer;
+
+    public MeteredBCryptPasswordEncoder(int strength) {
+        super(strength);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        try {
+            return super.encode(rawPassword);
+        } finally {
+            record(encodeTimer, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        try {
+            return super.matches(rawPassword, encodedPassword);
+        } finally {
+            record(matchesTimer, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        encodeTimer = Timer.builder("auth.password.bcrypt")
+                .description("Durée des calculs BCrypt")
+                .tag("operation", "encode")
+                .register(registry);
+        matchesTimer = Timer.builder("auth.password.bcrypt")
+                .description("Durée des calculs BCrypt")
+                .tag("operation", "matches")
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -2,22 +2,28 @@ package com.kata.springsecurity.config;
 
 
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.authentication.AuthenticationProvider;
-import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.context.annotation.Primary;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
+import java.util.Map;
+
+import static com.kata.springsecurity.config.RoleAuthorizationManager.hasRole;
+
 
 @Configuration
 @AllArgsConstructor
 public class ProdSecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
 
     private final MyUserDetailService customUserDetailService;
 
@@ -27,7 +33,7 @@ public class ProdSecurityConfig {
                 // Configuration des autorisations
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/public").permitAll() // Accessible à tous
-                        .requestMatchers("/api/admin").hasRole("ADMIN") // Accessible uniquement aux utilisateurs avec le rôle ADMIN
+                        .requestMatchers("/api/admin").access(hasRole(Role.ADMIN)) // Accessible uniquement aux utilisateurs avec le rôle ADMIN (test de masque)
                         .anyRequest().authenticated()              // Nécessite une authentification pour les autres endpoints
                 )
                 // Authentification HTTP Basic
@@ -38,24 +44,47 @@ public class ProdSecurityConfig {
         return http.build();
     }
 
+    // UserDetailsService mis en cache devant la base (usernames inconnus compris)
     @Bean
-    public UserDetailsService userDetailsService() {
-        return customUserDetailService;
+    public CachingUserDetailService userDetailsService(@Value("${app.user-cache.max-size:10000}") long maxSize,
+                                                      @Value("${app.user-cache.ttl:60s}") Duration ttl,
+                                                      @Value("${app.user-cache.negative-ttl:5s}") Duration negativeTtl) {
+        return new CachingUserDetailService(customUserDetailService, maxSize, ttl, negativeTtl);
     }
 
-    // AuthenticationProvider qui s’appuie sur le UserDetailsService et BCrypt
+    // AuthenticationProvider qui s’appuie sur le UserDetailsService et BCrypt,
+    // avec un cache court des identifiants déjà vérifiés (évite un BCrypt par requête Basic).
+    // Un hash qui n'est plus au format courant est réécrit après un login réussi (UserDetailsPasswordService)
     @Bean
-    public AuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-        provider.setUserDetailsService(customUserDetailService);
-        provider.setPasswordEncoder(bCryptPasswordEncoder());
+    public CredentialCacheAuthenticationProvider authenticationProvider(CachingUserDetailService userDetailsService,
+                                                                        PasswordEncoder passwordEncoder,
+                                                                        @Value("${app.credential-cache.max-size:10000}") long maxSize,
+                                                                        @Value("${app.credential-cache.ttl:60s}") Duration ttl) {
+        CredentialCacheAuthenticationProvider provider = new CredentialCacheAuthenticationProvider(maxSize, ttl);
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
-    // Encoder de mots de passe
+    // Encoder BCrypt (durées exposées dans auth.password.bcrypt) : coût fixé par app.password.bcrypt.strength,
+    // ou calibré sur cette machine au démarrage (strength=0)
+    @Bean
+    public MeteredBCryptPasswordEncoder bCryptPasswordEncoder(@Value("${app.password.bcrypt.strength:0}") int strength,
+                                                              @Value("${app.password.bcrypt.target-duration:100ms}") Duration targetDuration,
+                                                              @Value("${app.password.bcrypt.min-strength:10}") int minStrength,
+                                                              @Value("${app.password.bcrypt.max-strength:14}") int maxStrength) {
+        return new MeteredBCryptPasswordEncoder(strength > 0 ? strength : BCryptCostCalibrator.calibrate(targetDuration, minStrength, maxStrength));
+    }
+
+    // Hashs écrits préfixés {bcrypt} ; les hashs sans préfixe (antérieurs) restent vérifiés par BCrypt,
+    // et upgradeEncoding les signale, comme ceux d'un coût inférieur au coût courant
     @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Primary
+    public PasswordEncoder passwordEncoder(MeteredBCryptPasswordEncoder bCryptPasswordEncoder) {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bCryptPasswordEncoder));
+        encoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return encoder;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.kata.springsecurity.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre des rôles : chaque rôle est un bit d'un masque (long), stocké tel quel en base
+ * (custom_user.role_mask) et dans le principal mis en cache.
+ * <p>
+ * Les autorités "ROLE_xxx" sont créées une fois pour toutes, et la liste d'autorités d'un masque
+ * une fois par combinaison de rôles : charger un utilisateur ne découpe plus de chaîne et
+ * n'alloue plus de SimpleGrantedAuthority.
+ * <p>
+ * La position d'un rôle est son bit en base : ne jamais réordonner ni supprimer, seulement ajouter à la fin (64 au plus).
+ */
+public enum Role {
+
+    USER,
+    ADMIN;
+
+    private static final Map<String, Role> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<Long, List<GrantedAuthority>> AUTHORITIES = new ConcurrentHashMap<>();
+
+    static {
+        for (Role role : values()) {
+            BY_NAME.put(role.name(), role);
+            BY_NAME.put(role.authority.getAuthority(), role);
+        }
+    }
+
+    private final GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + name());
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+
+    public GrantedAuthority authority() {
+        return authority;
+    }
+
+    public boolean isIn(long mask) {
+        return (mask & bit()) != 0;
+    }
+
+    /**
+     * @param names noms de rôles ("ADMIN" ou "ROLE_ADMIN", casse indifférente)
+     * @throws IllegalArgumentException si un rôle est inconnu
+     */
+    public static long mask(Collection<String> names) {
+        long mask = 0L;
+        for (String name : names) {
+            Role role = BY_NAME.get(name.trim().toUpperCase(Locale.ROOT));
+            if (role == null) {
+                throw new IllegalArgumentException("Unknown role: " + name);
+            }
+            mask |= role.bit();
+        }
+        return mask;
+    }
+
+    public static long mask(Role... roles) {
+        long mask = 0L;
+        for (Role role : roles) {
+            mask |= role.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * Masque d'un principal qui n'a pas été chargé par {@link UserPrincipal} ; les autorités inconnues sont ignorées.
+     */
+    public static long maskOf(Collection<? extends GrantedAuthority> authorities) {
+        long mask = 0L;
+        for (GrantedAuthority authority : authorities) {
+            Role role = authority.getAuthority() != null ? BY_NAME.get(authority.getAuthority()) : null;
+            if (role != null) {
+                mask |= role.bit();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return la liste (immuable et partagée) des autorités du masque
+     */
+    public static List<GrantedAuthority> authorities(long mask) {
+        return AUTHORITIES.computeIfAbsent(mask, Role::buildAuthorities);
+    }
+
+    public static List<String> names(long mask) {
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (Role role : values()) {
+            if (role.isIn(mask)) {
+                names.add(role.name());
+            }
+        }
+        return names;
+    }
+
+    private static List<GrantedAuthority> buildAuthorities(long mask) {
+        List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(mask));
+        for (Role role : values()) {
+            if (role.isIn(mask)) {
+                authorities.add(role.authority);
+            }
+        }
+        return List.copyOf(authorities);
+    }
+}
@@ -0,0 +1,58 @@
+package com.kata.springsecurity.config;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+/**
+ * Équivalent de hasRole / hasAnyRole par un seul test de masque sur un {@link UserPrincipal},
+ * au lieu de comparer des chaînes à chaque autorité de l'utilisateur.
+ */
+public final class RoleAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationResult GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationResult DENIED = new AuthorizationDecision(false);
+
+    private final long requiredMask;
+
+    private RoleAuthorizationManager(long requiredMask) {
+        this.requiredMask = requiredMask;
+    }
+
+    public static RoleAuthorizationManager hasRole(Role role) {
+        return new RoleAuthorizationManager(role.bit());
+    }
+
+    public static RoleAuthorizationManager hasAnyRole(Role... roles) {
+        return new RoleAuthorizationManager(Role.mask(roles));
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        return isGranted(authentication.get()) ? GRANTED : DENIED;
+    }
+
+    /**
+     * @deprecated Spring Security appelle {@link #authorize} ; gardée parce que l'interface l'impose encore
+     */
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        return new AuthorizationDecision(isGranted(authentication.get()));
+    }
+
+    boolean isGranted(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return false;
+        }
+        long mask = authentication.getPrincipal() instanceof UserPrincipal principal
+                ? principal.roleMask()
+                : Role.maskOf(authentication.getAuthorities());
+        return (mask & requiredMask) != 0;
+    }
+}
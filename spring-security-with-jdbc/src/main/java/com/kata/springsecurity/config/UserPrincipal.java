@@ -0,0 +1,79 @@
+package com.kata.springsecurity.config;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Principal dont les rôles sont un masque de {@link Role} : les autorités sont la liste partagée
+ * du registre, sans le tri ni les copies que fait {@link org.springframework.security.core.userdetails.User}
+ * à chaque construction. Le contrôle d'accès lit directement le masque (voir {@link RoleAuthorizationManager}).
+ */
+public final class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    private final String username;
+    private String password;
+    private final long roleMask;
+
+    public UserPrincipal(String username, String password, long roleMask) {
+        this.username = Objects.requireNonNull(username);
+        this.password = password;
+        this.roleMask = roleMask;
+    }
+
+    public long roleMask() {
+        return roleMask;
+    }
+
+    /**
+     * Copie remise à chaque appelant : Spring Security efface le mot de passe du principal après authentification.
+     */
+    public UserPrincipal copy() {
+        return new UserPrincipal(username, password, roleMask);
+    }
+
+    /**
+     * Même utilisateur avec un autre hash (hash réécrit au login).
+     */
+    public UserPrincipal withPassword(String newPassword) {
+        return new UserPrincipal(username, newPassword, roleMask);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Role.authorities(roleMask);
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UserPrincipal other && username.equals(other.username);
+    }
+
+    @Override
+    public int hashCode() {
+        return username.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal[username=" + username + ", roles=" + Role.names(roleMask) + "]";
+    }
+}
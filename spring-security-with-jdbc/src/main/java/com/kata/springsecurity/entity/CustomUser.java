@@ -4,12 +4,16 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+// index unique sur username : la recherche de l'authentification, à chaque requête HTTP Basic non cachée
 @Entity
+@Table(indexes = @Index(name = "custom_user_username_idx", columnList = "username", unique = true))
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -21,4 +25,5 @@ public class CustomUser {
     private Long id;
     private String username;
     private String password;
-    private String roles;}
+    // masque de Role (un bit par rôle), voir Role pour la correspondance
+    private long roleMask;}
@@ -1,10 +1,35 @@
 package com.kata.springsecurity.repository;
 
 import com.kata.springsecurity.entity.CustomUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface CustomUserRepository extends JpaRepository<CustomUser, Long> {
     Optional<CustomUser> findByUsername(String username);
+
+    /**
+     * Chemin de lecture de l'authentification : projection (select username, password, roleMask)
+     * dans une transaction en lecture seule, sans flush de la session.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    /**
+     * Remplace le hash d'un utilisateur s'il est toujours celui lu au login (réécriture au coût courant) :
+     * un changement de mot de passe concurrent n'est pas écrasé.
+     *
+     * @return 0 si l'utilisateur n'existe plus ou si son hash a changé entre-temps
+     */
+    @Transactional
+    @Modifying
+    @Query("update CustomUser u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+    int updatePassword(String username, String oldPassword, String newPassword);
 }
@@ -0,0 +1,8 @@
+package com.kata.springsecurity.repository;
+
+/**
+ * Projection de {@link com.kata.springsecurity.entity.CustomUser} limitée à ce qu'il faut pour authentifier :
+ * lue directement depuis le résultat SQL, sans entité gérée (ni snapshot pour le dirty checking).
+ */
+public record UserCredentials(String username, String password, long roleMask) {
+}
@@ -0,0 +1,77 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CredentialCacheAuthenticationProviderTest {
+
+    private final BCryptPasswordEncoder bCrypt = new BCryptPasswordEncoder(4);
+    private final AtomicInteger bCryptChecks = new AtomicInteger();
+    private final Map<String, UserDetails> users = new HashMap<>();
+    private final CredentialCacheAuthenticationProvider provider = new CredentialCacheAuthenticationProvider(100, Duration.ofMinutes(1));
+
+    CredentialCacheAuthenticationProviderTest() {
+        provider.setUserDetailsService(users::get);
+        provider.setPasswordEncoder(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bCrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                bCryptChecks.incrementAndGet();
+                return bCrypt.matches(rawPassword, encodedPassword);
+            }
+        });
+    }
+
+    @Test
+    void repeatedCredentialsAreVerifiedOnlyOnce() {
+        setPassword("user", "password");
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+        provider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+
+        assertThat(bCryptChecks).hasValue(1);
+        assertThat(provider.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void wrongPasswordIsNeverServedFromCache() {
+        setPassword("user", "password");
+        provider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+
+        assertThatThrownBy(() -> provider.authenticate(new UsernamePasswordAuthenticationToken("user", "wrong")))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void passwordChangeInvalidatesCachedCredentials() {
+        setPassword("user", "password");
+        provider.authenticate(new UsernamePasswordAuthenticationToken("user", "password"));
+
+        setPassword("user", "newpassword");
+
+        assertThatThrownBy(() -> provider.authenticate(new UsernamePasswordAuthenticationToken("user", "password")))
+                .isInstanceOf(BadCredentialsException.class);
+        assertThat(bCryptChecks).hasValue(2);
+    }
+
+    private void setPassword(String username, String password) {
+        users.put(username, User.withUsername(username).password(bCrypt.encode(password)).roles("USER").build());
+    }
+}
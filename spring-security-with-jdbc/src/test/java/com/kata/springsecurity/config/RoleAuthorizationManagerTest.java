@@ -0,0 +1,49 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoleAuthorizationManagerTest {
+
+    @Test
+    void authoritiesAreSharedPerRoleCombination() {
+        long mask = Role.mask(List.of("admin", "ROLE_USER"));
+
+        assertThat(mask).isEqualTo(Role.mask(Role.ADMIN, Role.USER));
+        assertThat(Role.names(mask)).containsExactly("USER", "ADMIN");
+        assertThat(Role.authorities(mask)).containsExactly(Role.USER.authority(), Role.ADMIN.authority());
+        assertThat(new UserPrincipal("bob", "hash", mask).getAuthorities())
+                .isSameAs(new UserPrincipal("alice", "hash", mask).getAuthorities());
+        assertThatThrownBy(() -> Role.mask(List.of("SUPERVISOR"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void checksTheRoleMaskOfThePrincipal() {
+        UserPrincipal user = new UserPrincipal("bob", null, Role.USER.bit());
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+
+        assertThat(RoleAuthorizationManager.hasRole(Role.USER).isGranted(authentication)).isTrue();
+        assertThat(RoleAuthorizationManager.hasRole(Role.ADMIN).isGranted(authentication)).isFalse();
+        assertThat(RoleAuthorizationManager.hasAnyRole(Role.ADMIN, Role.USER).isGranted(authentication)).isTrue();
+    }
+
+    @Test
+    void fallsBackToAuthoritiesForOtherPrincipals() {
+        User admin = (User) User.withUsername("alice").password("hash").roles("ADMIN").build();
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities());
+        AnonymousAuthenticationToken anonymous =
+                new AnonymousAuthenticationToken("key", "anonymous", List.of(Role.USER.authority()));
+
+        assertThat(RoleAuthorizationManager.hasRole(Role.ADMIN).isGranted(authentication)).isTrue();
+        assertThat(RoleAuthorizationManager.hasRole(Role.USER).isGranted(anonymous)).isFalse();
+    }
+}
@@ -1,5 +1,6 @@
 package com.kata.springsecurity.controller;
 
+import com.kata.springsecurity.config.Role;
 import com.kata.springsecurity.config.TestContainersConfig;
 import com.kata.springsecurity.config.TestDatabaseConfig;
 import com.kata.springsecurity.entity.CustomUser;
@@ -52,7 +53,7 @@ class DemoControllerIT {
         customUserRepository.save(CustomUser.builder()
                 .username("user")
                 .password(encodedPassword)
-                .roles("USER")
+                .roleMask(Role.USER.bit())
                 .build());
 
 
@@ -78,7 +79,7 @@ class DemoControllerIT {
         customUserRepository.save(CustomUser.builder()
                 .username("admin")
                 .password(encodedPassword)
-                .roles("ADMIN")
+                .roleMask(Role.ADMIN.bit())
                 .build());
 
 
@@ -2,5 +2,6 @@ CREATE TABLE IF NOT EXISTS custom_user (
    id BIGSERIAL PRIMARY KEY,
    username VARCHAR(255) NOT NULL,
     password VARCHAR(255) NOT NULL,
-    roles VARCHAR(255) NOT NULL
-    );
\ No newline at end of file
+    role_mask BIGINT NOT NULL DEFAULT 0
+    );
+CREATE UNIQUE INDEX IF NOT EXISTS custom_user_username_idx ON custom_user (username);
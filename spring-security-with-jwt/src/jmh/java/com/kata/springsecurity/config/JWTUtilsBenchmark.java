@@ -0,0 +1,83 @@
+package com.kata.springsecurity.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare le chemin historique du filtre (3 parsings + 3 vérifications HS256, clé et parser
+ * reconstruits à chaque appel) au chemin {@link JWTUtils#verify(String)} (un seul parsing),
+ * et mesure séparément les opérations publiques de {@link JWTUtils}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JWTUtilsBenchmark {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+
+    private JWTUtils jwtUtils;
+    private String token;
+    private UserDetails userDetails;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JWTUtils(SECRET, 900_000L);
+        token = jwtUtils.generateToken("bob");
+        userDetails = User.withUsername("bob").password("ignored").roles("USER").build();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken("bob");
+    }
+
+    @Benchmark
+    public String extractUsernameFromToken() {
+        return jwtUtils.extractUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtils.validateToken(token, userDetails);
+    }
+
+    @Benchmark
+    public boolean legacyFilterPath() {
+        // extractUsernameFromToken puis validateToken (username + expiration) comme avant
+        String username = legacyClaims(token).getSubject();
+        String tokenUsername = legacyClaims(token).getSubject();
+        boolean expired = legacyClaims(token).getExpiration().before(new Date());
+        return username != null && Objects.equals(tokenUsername, userDetails.getUsername()) && !expired;
+    }
+
+    @Benchmark
+    public boolean verifiedTokenPath() {
+        VerifiedToken verifiedToken = jwtUtils.verify(token);
+        return verifiedToken.username() != null && jwtUtils.validateToken(verifiedToken, userDetails);
+    }
+
+    private static Claims legacyClaims(String token) {
+        Key key = new SecretKeySpec(SECRET.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
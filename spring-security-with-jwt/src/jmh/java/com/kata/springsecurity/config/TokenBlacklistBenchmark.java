@@ -0,0 +1,55 @@
+package com.kata.springsecurity.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@link TokenBlacklistService#isBlacklisted(TokenDigest)} pour un token non révoqué
+ * (le cas de presque toutes les requêtes), avec et sans le filtre de Bloom, sous contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class TokenBlacklistBenchmark {
+
+    private static final long LIFETIME = 900_000L;
+
+    @Param({"1000", "100000", "1000000"})
+    public int revokedTokens;
+
+    @Param({"true", "false"})
+    public boolean bloom;
+
+    private TokenBlacklistService service;
+    private TokenDigest[] validTokens;
+
+    @Setup
+    public void setUp() {
+        service = new TokenBlacklistService(event -> { }, 10_000_000L, 1000L, bloom, 1_000_000L, LIFETIME);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < revokedTokens; i++) {
+            // expirations réparties sur toute la durée de vie des tokens
+            service.blacklist(TokenDigest.of("revoked-" + i), now + 60_000L + (i % (LIFETIME - 120_000L)));
+        }
+        validTokens = new TokenDigest[4096];
+        for (int i = 0; i < validTokens.length; i++) {
+            validTokens[i] = TokenDigest.of("valid-" + i);
+        }
+    }
+
+    @Benchmark
+    public boolean isBlacklistedValidToken() {
+        return service.isBlacklisted(validTokens[ThreadLocalRandom.current().nextInt(validTokens.length)]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.kata.springsecurity.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API par chaîne de {@link TokenBlacklistService} (empreinte SHA-256 comprise) : trois threads
+ * vérifient des tokens pendant qu'un quatrième en révoque. Les révocations tournent sur un jeu fixe
+ * de tokens pour que la taille de la blacklist reste stable pendant la mesure.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenBlacklistContentionBenchmark {
+
+    private static final long LIFETIME = 900_000L;
+
+    @Param({"true", "false"})
+    public boolean bloom;
+
+    private TokenBlacklistService service;
+    private String[] checkedTokens;
+    private String[] revokedTokens;
+    private long expiresAt;
+
+    @Setup
+    public void setUp() {
+        service = new TokenBlacklistService(event -> { }, 10_000_000L, 1000L, bloom, 1_000_000L, LIFETIME);
+        expiresAt = System.currentTimeMillis() + LIFETIME;
+        checkedTokens = new String[4096];
+        revokedTokens = new String[4096];
+        for (int i = 0; i < checkedTokens.length; i++) {
+            // longueur proche d'un vrai JWT HS256
+            checkedTokens[i] = "eyJhbGciOiJIUzI1NiJ9.valid-" + i + ".c2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJl";
+            revokedTokens[i] = "eyJhbGciOiJIUzI1NiJ9.revoked-" + i + ".c2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJl";
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public boolean isTokenBlacklisted() {
+        return service.isTokenBlacklisted(checkedTokens[ThreadLocalRandom.current().nextInt(checkedTokens.length)]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean blacklistToken() {
+        return service.blacklistToken(revokedTokens[ThreadLocalRandom.current().nextInt(revokedTokens.length)], expiresAt);
+    }
+}
@@ -0,0 +1,82 @@
+package com.kata.springsecurity.config.filter;
+
+import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.VerifiedTokenCache;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passage complet d'une requête authentifiée dans {@link JWTFilter} (blacklist, signature, seuil,
+ * chargement de l'utilisateur, SecurityContext) avec des objets servlet de test.
+ * L'utilisateur vient d'une map : la lecture en base est mesurée par CustomUserDetailServiceBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JWTFilterBenchmark {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+
+    @Param({"false", "true"})
+    public boolean tokenCache;
+
+    private JWTFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        JWTUtils jwtUtils = new JWTUtils(SECRET, 900_000L);
+        UserDetails user = User.withUsername("bob").password("ignored").roles("USER").build();
+        TokenBlacklistService blacklist = new TokenBlacklistService(event -> { }, 1_000_000L, 1000L, false, 500_000L, 900_000L);
+        // seuls les seuils en mémoire sont lus par le filtre : pas de dépôt nécessaire
+        filter = new JWTFilter(jwtUtils,
+                username -> user,
+                blacklist,
+                new VerifiedTokenCache(jwtUtils, tokenCache, 100_000L),
+                new UserTokenVersionService(null),
+                new UserTokenWatermarkService(null, 900_000L),
+                metrics());
+        authorizationHeader = "Bearer " + jwtUtils.generateToken("bob");
+    }
+
+    // timers branchés comme en production : leur coût fait partie de la mesure
+    private static JwtFilterMetrics metrics() {
+        JwtFilterMetrics metrics = new JwtFilterMetrics(List.of(Duration.ofMillis(5), Duration.ofMillis(25), Duration.ofMillis(100)));
+        metrics.bindTo(new SimpleMeterRegistry());
+        return metrics;
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        // requête neuve à chaque appel : OncePerRequestFilter marque la requête déjà filtrée
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/protected");
+        request.addHeader("Authorization", authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
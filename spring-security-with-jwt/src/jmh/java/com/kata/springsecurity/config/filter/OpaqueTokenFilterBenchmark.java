@@ -0,0 +1,66 @@
+package com.kata.springsecurity.config.filter;
+
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passage d'une requête authentifiée dans {@link OpaqueTokenFilter}, à comparer à {@link JWTFilterBenchmark} :
+ * une recherche dans la table de sessions à la place de la blacklist, de la signature et du chargement de l'utilisateur.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OpaqueTokenFilterBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int sessions;
+
+    private OpaqueTokenFilter filter;
+    private String[] authorizationHeaders;
+
+    @Setup
+    public void setUp() {
+        OpaqueTokenStore store = new OpaqueTokenStore("opaque", Duration.ofMinutes(30), Duration.ofHours(12), sessions);
+        authorizationHeaders = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            UserPrincipal user = new UserPrincipal("user-" + i, "", Role.USER.bit());
+            authorizationHeaders[i] = "Bearer " + store.issue(user, 0L).orElseThrow();
+        }
+        JwtFilterMetrics metrics = new JwtFilterMetrics(List.of(Duration.ofMillis(5), Duration.ofMillis(25), Duration.ofMillis(100)));
+        metrics.bindTo(new SimpleMeterRegistry());
+        filter = new OpaqueTokenFilter(store, new UserTokenVersionService(null), metrics);
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/protected");
+        request.addHeader("Authorization", authorizationHeaders[ThreadLocalRandom.current().nextInt(authorizationHeaders.length)]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
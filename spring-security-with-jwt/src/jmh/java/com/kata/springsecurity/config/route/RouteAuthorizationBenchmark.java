@@ -0,0 +1,112 @@
+package com.kata.springsecurity.config.route;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.RoleAuthorizationManager;
+import com.kata.springsecurity.config.UserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.access.intercept.RequestMatcherDelegatingAuthorizationManager;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Décision d'accès pour une requête authentifiée, avec n règles de routes : {@link RouteAuthorizationManager}
+ * (arbre de chemins) contre la chaîne de requestMatchers de Spring Security, parcourue dans l'ordre
+ * (RequestMatcherDelegatingAuthorizationManager + AntPathRequestMatcher, sans contexte Spring MVC).
+ * Les requêtes visent des règles tirées au hasard : la chaîne en teste la moitié en moyenne.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RouteAuthorizationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int rules;
+
+    @Param({"trie", "chain"})
+    public String matcher;
+
+    private boolean useTrie;
+    private AuthorizationManager<RequestAuthorizationContext> trie;
+    private AuthorizationManager<HttpServletRequest> chain;
+    private RequestAuthorizationContext[] requests;
+    private Supplier<Authentication> authentication;
+
+    @Setup
+    public void setUp() {
+        List<RouteRule> routeRules = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; routeRules.size() < rules; i++) {
+            // formes de routes d'une API REST : littéral, variable, méthode seule, sous-arbre
+            routeRules.add(new RouteRule(null, "/api/service" + i + "/items", "USER"));
+            paths.add("/api/service" + i + "/items");
+            routeRules.add(new RouteRule(null, "/api/service" + i + "/items/{id}", "USER,ADMIN"));
+            paths.add("/api/service" + i + "/items/42");
+            routeRules.add(new RouteRule("GET", "/api/service" + i + "/orders/*/lines", "authenticated"));
+            paths.add("/api/service" + i + "/orders/7/lines");
+            routeRules.add(new RouteRule(null, "/api/service" + i + "/admin/**", "ADMIN"));
+            paths.add("/api/service" + i + "/admin/reports/daily");
+        }
+        routeRules = routeRules.subList(0, rules);
+        useTrie = matcher.equals("trie");
+        trie = RouteAuthorizationManager.of(routeRules);
+        chain = chain(routeRules);
+
+        Random random = new Random(42);
+        requests = new RequestAuthorizationContext[1024];
+        for (int i = 0; i < requests.length; i++) {
+            String path = paths.get(random.nextInt(rules));
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            request.setServletPath(path);
+            requests[i] = new RequestAuthorizationContext(request);
+        }
+        UserPrincipal principal = new UserPrincipal("bob", null, Role.mask(Role.ADMIN, Role.USER));
+        Authentication token = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        authentication = () -> token;
+    }
+
+    // ce que construit authorizeHttpRequests : un matcher et un gestionnaire par règle, puis anyRequest().authenticated()
+    private static AuthorizationManager<HttpServletRequest> chain(List<RouteRule> rules) {
+        RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager.builder();
+        for (RouteRule rule : rules) {
+            String pattern = rule.pattern().replaceAll("\\{[^}]*}", "*");
+            AuthorizationManager<RequestAuthorizationContext> manager = rule.access().equals("authenticated")
+                    ? AuthenticatedAuthorizationManager.authenticated()
+                    : RoleAuthorizationManager.hasAnyRole(List.of(rule.access().split(",")));
+            builder.add(rule.method() != null
+                    ? AntPathRequestMatcher.antMatcher(HttpMethod.valueOf(rule.method()), pattern)
+                    : AntPathRequestMatcher.antMatcher(pattern), manager);
+        }
+        builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+        return builder.build();
+    }
+
+    @Benchmark
+    public boolean check() {
+        RequestAuthorizationContext context = requests[ThreadLocalRandom.current().nextInt(requests.length)];
+        return useTrie
+                ? trie.authorize(authentication, context).isGranted()
+                : chain.authorize(authentication, context.getRequest()).isGranted();
+    }
+}
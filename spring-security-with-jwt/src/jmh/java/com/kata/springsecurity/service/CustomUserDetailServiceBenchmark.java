@@ -0,0 +1,76 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.SpringSecurityApplication;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomUserDetailService#loadUserByUsername(String)} contre H2 embarquée (JPA, transaction,
+ * requête), comparé au même appel servi par {@link CachingUserDetailService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CustomUserDetailServiceBenchmark {
+
+    private static final int USERS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private CustomUserDetailService userDetailService;
+    private CachingUserDetailService cachingUserDetailService;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringSecurityApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.com.kata.springsecurity=WARN");
+        CustomUserRepository repository = context.getBean(CustomUserRepository.class);
+        for (int i = 0; i < USERS; i++) {
+            repository.save(CustomUser.builder().username("user" + i).password("{noop}secret").roleMask(Role.USER.bit()).build());
+        }
+        userDetailService = context.getBean(CustomUserDetailService.class);
+        cachingUserDetailService = context.getBean(CachingUserDetailService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userDetailService.loadUserByUsername(randomUser());
+    }
+
+    @Benchmark
+    public UserDetails loadUserByUsernameCached() {
+        return cachingUserDetailService.loadUserByUsername(randomUser());
+    }
+
+    private static String randomUser() {
+        return "user" + ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
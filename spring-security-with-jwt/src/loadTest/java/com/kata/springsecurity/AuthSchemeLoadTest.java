@@ -0,0 +1,156 @@
+package com.kata.springsecurity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.JwtKeyStore;
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.load.LoadGenerator;
+import com.kata.springsecurity.load.LoadResult;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Coût par requête du schéma JWT (et de sa variante à tokens opaques), à comparer aux tirs identiques
+ * de spring-security-with-jdbc (HTTP Basic + BCrypt) et spring-security-sample (HTTP Basic en mémoire).
+ * Application complète sur un port aléatoire, base H2, configuration par défaut.
+ */
+class AuthSchemeLoadTest {
+
+    @Test
+    void jwt() throws Exception {
+        String scheme = "jwt";
+        try (ConfigurableApplicationContext context = start("jwt");
+             HttpClient client = client()) {
+            String baseUrl = baseUrl(context);
+            String credentials = seedUsers(context);
+            JWTUtils jwtUtils = context.getBean(JWTUtils.class);
+            JwtKeyStore keyStore = context.getBean(JwtKeyStore.class);
+            String userToken = jwtUtils.generateToken("load-user");
+            String adminToken = jwtUtils.generateToken("load-admin");
+
+            LoadGenerator generator = new LoadGenerator(client);
+            generator.run(scheme, "public", () -> get(baseUrl + "/api/public").build(), 200);
+            generator.run(scheme, "protected", () -> get(baseUrl + "/api/protected").header("Authorization", "Bearer " + userToken).build(), 200);
+            generator.run(scheme, "admin", () -> get(baseUrl + "/api/admin").header("Authorization", "Bearer " + adminToken).build(), 200);
+            generator.run(scheme, "login", () -> request(baseUrl + "/api/auth/login")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                    .build(), 200);
+            // un token révoqué est refusé par le filtre : chaque logout présente un token neuf (jti unique)
+            generator.run(scheme, "logout", () -> request(baseUrl + "/api/auth/logout")
+                    .header("Authorization", "Bearer " + freshToken(keyStore))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(), 200);
+
+            LoadResult.print(generator.results());
+            assertThat(generator.results()).allSatisfy(result -> assertThat(result.errors()).isZero());
+        }
+    }
+
+    /**
+     * Mêmes tirs avec app.token.format=opaque : identifiant de 22 caractères résolu dans la table de sessions.
+     */
+    @Test
+    void opaque() throws Exception {
+        String scheme = "opaque";
+        try (ConfigurableApplicationContext context = start("opaque");
+             HttpClient client = client()) {
+            String baseUrl = baseUrl(context);
+            String credentials = seedUsers(context);
+            OpaqueTokenStore sessionStore = context.getBean(OpaqueTokenStore.class);
+            UserPrincipal user = new UserPrincipal("load-user", "", Role.USER.bit());
+            String userToken = sessionStore.issue(user, 0L).orElseThrow();
+            String adminToken = sessionStore.issue(new UserPrincipal("load-admin", "", Role.mask(Role.ADMIN, Role.USER)), 0L).orElseThrow();
+
+            LoadGenerator generator = new LoadGenerator(client);
+            generator.run(scheme, "public", () -> get(baseUrl + "/api/public").build(), 200);
+            generator.run(scheme, "protected", () -> get(baseUrl + "/api/protected").header("Authorization", "Bearer " + userToken).build(), 200);
+            generator.run(scheme, "admin", () -> get(baseUrl + "/api/admin").header("Authorization", "Bearer " + adminToken).build(), 200);
+            generator.run(scheme, "login", () -> request(baseUrl + "/api/auth/login")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                    .build(), 200);
+            // une session fermée est refusée : chaque logout présente une session neuve
+            generator.run(scheme, "logout", () -> request(baseUrl + "/api/auth/logout")
+                    .header("Authorization", "Bearer " + sessionStore.issue(user, 0L).orElseThrow())
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(), 200);
+
+            LoadResult.print(generator.results());
+            assertThat(generator.results()).allSatisfy(result -> assertThat(result.errors()).isZero());
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String tokenFormat) {
+        return new SpringApplicationBuilder(SpringSecurityApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:auth-scheme-load-" + tokenFormat + ";DB_CLOSE_DELAY=-1",
+                        "--app.token.format=" + tokenFormat,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.com.kata.springsecurity=WARN");
+    }
+
+    private static HttpClient client() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext context) {
+        return "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * @return le corps de login de load-user
+     */
+    private static String seedUsers(ConfigurableApplicationContext context) throws Exception {
+        CustomUserRepository userRepository = context.getBean(CustomUserRepository.class);
+        String password = context.getBean(BCryptPasswordEncoder.class).encode("secret");
+        userRepository.save(CustomUser.builder().username("load-user").password(password).roleMask(Role.USER.bit()).build());
+        userRepository.save(CustomUser.builder().username("load-admin").password(password).roleMask(Role.mask(Role.ADMIN, Role.USER)).build());
+        return new ObjectMapper().writeValueAsString(Map.of("username", "load-user", "password", "secret"));
+    }
+
+    private static String freshToken(JwtKeyStore keyStore) {
+        long now = System.currentTimeMillis();
+        return keyStore.sign(Jwts.builder()
+                        .setId(UUID.randomUUID().toString())
+                        .setSubject("load-user")
+                        .setIssuedAt(new Date(now))
+                        .setExpiration(new Date(now + 300_000L)))
+                .compact();
+    }
+
+    private static HttpRequest.Builder get(String url) {
+        return request(url).GET();
+    }
+
+    private static HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(LoadGenerator.requestTimeout());
+    }
+}
@@ -0,0 +1,161 @@
+package com.kata.springsecurity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare threads Tomcat classiques et threads virtuels sur /api/protected quand la base est lente :
+ * chaque requête recharge l'utilisateur (cache désactivé) et chaque connexion coûte DB_LATENCY_MILLIS.
+ * Le pool Tomcat est volontairement petit (TOMCAT_THREADS) et identique dans les deux cas.
+ */
+class VirtualThreadsLoadTest {
+
+    private static final int DB_LATENCY_MILLIS = 50;
+    private static final int TOMCAT_THREADS = 50;
+    private static final int CONCURRENT_CLIENTS = 1000;
+    private static final int REQUESTS_PER_CLIENT = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void virtualThreadsServeMoreConcurrentRequestsThanTheTomcatPool() throws Exception {
+        Result platform = run(false, "thread-local");
+        Result virtual = run(true, "scoped-value");
+
+        System.out.printf("%-10s %10s %10s %10s%n", "threads", "req/s", "p50 (ms)", "p99 (ms)");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-10s %10.0f %10d %10d%n", result.name(), result.throughput(), result.p50(), result.p99());
+        }
+        assertThat(virtual.errors()).isZero();
+        assertThat(virtual.throughput()).isGreaterThan(platform.throughput());
+    }
+
+    private Result run(boolean virtualThreads, String contextStrategy) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringSecurityApplication.class, SlowDatabaseConfig.class)
+                // arguments de ligne de commande : priorité sur application.properties
+                .run(
+                        "--server.port=0",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--app.security.context-strategy=" + contextStrategy,
+                        "--app.user-cache.max-size=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        // la connexion est rendue après chaque requête SQL : la limite mesurée est celle des threads, pas du pool
+                        "--spring.jpa.open-in-view=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.com.kata.springsecurity=WARN");
+             HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            String baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String token = registerAndLogin(client, baseUrl);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/protected"))
+                    .header("Authorization", "Bearer " + token)
+                    .build();
+
+            // échauffement
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    long[] latencies = new long[REQUESTS_PER_CLIENT];
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[r] = response.statusCode() == 200 ? (System.nanoTime() - sent) / 1_000_000 : -1;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] all = new long[CONCURRENT_CLIENTS * REQUESTS_PER_CLIENT];
+            int index = 0;
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    all[index++] = latency;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long errors = Arrays.stream(all).filter(latency -> latency < 0).count();
+            Arrays.sort(all);
+            return new Result(virtualThreads ? "virtual" : "platform", all.length / seconds,
+                    all[all.length / 2], all[(int) (all.length * 0.99)], errors);
+        }
+    }
+
+    private String registerAndLogin(HttpClient client, String baseUrl) throws Exception {
+        String user = objectMapper.writeValueAsString(Map.of("username", "load", "password", "secret"));
+        client.send(post(baseUrl + "/api/auth/register", user), HttpResponse.BodyHandlers.discarding());
+        HttpResponse<String> login = client.send(post(baseUrl + "/api/auth/login", user), HttpResponse.BodyHandlers.ofString());
+        return (String) objectMapper.readValue(login.body(), Map.class).get("token");
+    }
+
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private record Result(String name, double throughput, long p50, long p99, long errors) {
+    }
+
+    /**
+     * Base "lente" : chaque prise de connexion attend DB_LATENCY_MILLIS (latence réseau simulée).
+     */
+    @Configuration
+    static class SlowDatabaseConfig {
+
+        @Bean
+        static BeanPostProcessor slowDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            try {
+                                Thread.sleep(DB_LATENCY_MILLIS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return super.getConnection();
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.kata.springsecurity.load;
+
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Générateur de charge HTTP (HttpClient du JDK), en deux modes :
+ * <ul>
+ *     <li>boucle fermée : {@code clients} clients enchaînent leurs requêtes, chacun attend sa réponse
+ *     avant d'envoyer la suivante. Mesure le débit maximal ;</li>
+ *     <li>boucle ouverte : les requêtes partent à débit fixe, que le serveur suive ou non. La latence est
+ *     comptée depuis la date d'envoi prévue (pas d'omission coordonnée) : c'est celle que verraient les utilisateurs.</li>
+ * </ul>
+ * Réglages par propriétés système (secondes) : load.warmup (2), load.duration (5), load.clients (32),
+ * load.timeout (30), load.rate (req/s en boucle ouverte ; 0 = la moitié du débit mesuré en boucle fermée)
+ * et load.output-dir (fichiers .hgrm et .hlog HdrHistogram, à comparer d'un build à l'autre).
+ */
+public class LoadGenerator {
+
+    private final HttpClient client;
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup", 2));
+    private final Duration duration = Duration.ofSeconds(Long.getLong("load.duration", 5));
+    private final int clients = Integer.getInteger("load.clients", 32);
+    private final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+    private final Path outputDir = Path.of(System.getProperty("load.output-dir", "build/load-test"));
+    private final List<LoadResult> results = new ArrayList<>();
+
+    public LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    public static Duration requestTimeout() {
+        return Duration.ofSeconds(Long.getLong("load.timeout", 30));
+    }
+
+    /**
+     * Échauffement, puis boucle fermée et boucle ouverte sur le même scénario.
+     *
+     * @param requests fournit une requête par envoi (ex. un token neuf pour chaque logout)
+     */
+    public void run(String scheme, String scenario, Supplier<HttpRequest> requests, int expectedStatus) throws IOException {
+        closedLoop(scheme, scenario, requests, expectedStatus, warmup);
+        LoadResult closed = closedLoop(scheme, scenario, requests, expectedStatus, duration);
+        LoadResult open = openLoop(scheme, scenario, requests, expectedStatus, rate > 0 ? rate : closed.throughput() / 2);
+        for (LoadResult result : List.of(closed, open)) {
+            result.write(outputDir);
+            results.add(result);
+        }
+    }
+
+    public List<LoadResult> results() {
+        return List.copyOf(results);
+    }
+
+    private LoadResult closedLoop(String scheme, String scenario, Supplier<HttpRequest> requests, int expectedStatus, Duration length) {
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long deadline = start + length.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.get();
+                        long sent = System.nanoTime();
+                        if (send(request, expectedStatus)) {
+                            recorder.recordValue((System.nanoTime() - sent) / 1000);
+                        } else {
+                            errors.increment();
+                        }
+                    }
+                });
+            }
+        }
+        return new LoadResult(scheme, scenario, "closed-" + clients, startMillis, recorder.getIntervalHistogram(),
+                errors.sum(), (System.nanoTime() - start) / 1e9);
+    }
+
+    private LoadResult openLoop(String scheme, String scenario, Supplier<HttpRequest> requests, int expectedStatus, double requestsPerSecond) {
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long interval = (long) (1e9 / Math.max(requestsPerSecond, 1.0));
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        for (long intended = start; intended < end; intended += interval) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long scheduledAt = intended;
+            inFlight.add(client.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error == null && response.statusCode() == expectedStatus) {
+                            recorder.recordValue((System.nanoTime() - scheduledAt) / 1000);
+                        } else {
+                            errors.increment();
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        return new LoadResult(scheme, scenario, "open-" + Math.round(requestsPerSecond), startMillis, recorder.getIntervalHistogram(),
+                errors.sum(), (System.nanoTime() - start) / 1e9);
+    }
+
+    private boolean send(HttpRequest request, int expectedStatus) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == expectedStatus;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
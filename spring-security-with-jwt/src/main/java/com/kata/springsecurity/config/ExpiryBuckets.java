@@ -0,0 +1,52 @@
+package com.kata.springsecurity.config;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Échéancier par seaux de temps : chaque clé est rangée dans le seau correspondant à sa date
+ * d'expiration (arrondie à {@code tickMillis}). Le nettoyage ne parcourt que les seaux échus,
+ * son coût dépend donc du nombre d'entrées qui expirent et non de la taille totale du stock.
+ *
+ * @param <K> type des clés planifiées
+ */
+public class ExpiryBuckets<K> {
+
+    private final long tickMillis;
+    private final ConcurrentSkipListMap<Long, Queue<K>> buckets = new ConcurrentSkipListMap<>();
+
+    public ExpiryBuckets(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    public void schedule(K key, long expiresAt) {
+        buckets.computeIfAbsent(expiresAt / tickMillis, tick -> new ConcurrentLinkedQueue<>()).add(key);
+    }
+
+    /**
+     * Vide les seaux entièrement échus à {@code now} et passe chacune de leurs clés à {@code onExpired}.
+     * Un tick de marge est laissé pour ne pas retirer un seau dans lequel un thread est encore en train d'écrire.
+     *
+     * @return le nombre de clés traitées
+     */
+    public int expire(long now, Consumer<K> onExpired) {
+        long lastFullyExpiredTick = now / tickMillis - 2;
+        ConcurrentNavigableMap<Long, Queue<K>> due = buckets.headMap(lastFullyExpiredTick, true);
+        int count = 0;
+        for (Map.Entry<Long, Queue<K>> bucket = due.pollFirstEntry(); bucket != null; bucket = due.pollFirstEntry()) {
+            for (K key : bucket.getValue()) {
+                onExpired.accept(key);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int bucketCount() {
+        return buckets.size();
+    }
+}
@@ -1,76 +1,125 @@
 package com.kata.springsecurity.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
 
 @Configuration
 public class JWTUtils {
-    @Value("${app.secret-key}")
-    private String secretKey;
+    static final String ROLES_CLAIM = "roles";
+    static final String VERSION_CLAIM = "ver";
 
-    @Value("${app.expiration-time}")
-    private long jwtExpirationTime;
+    private final long jwtExpirationTime;
+    // mode "stateless principal" : rôles et version dans les claims, pas de lecture en base par requête
+    private final boolean statelessPrincipal;
 
+    // construits une seule fois au démarrage, puis partagés (thread-safe) par toutes les requêtes ;
+    // la clé de vérification est choisie par kid dans le jeu de clés courant
+    private final JwtKeyStore keyStore;
+    private final JwtParser jwtParser;
+
+    @Autowired
+    public JWTUtils(JwtKeyStore keyStore,
+                    @Value("${app.expiration-time}") long jwtExpirationTime,
+                    @Value("${app.jwt.stateless-principal:false}") boolean statelessPrincipal) {
+        this.jwtExpirationTime = jwtExpirationTime;
+        this.statelessPrincipal = statelessPrincipal;
+        this.keyStore = keyStore;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyStore)
+                .build();
+    }
+
+    public JWTUtils(String secretKey, long jwtExpirationTime) {
+        this(JwtKeyStore.hmac(secretKey), jwtExpirationTime, false);
+    }
+
+    public boolean isStatelessPrincipal() {
+        return statelessPrincipal;
+    }
 
     public String generateToken(String username) {
         Map<String, Object> claims = new HashMap<>();
         return createToken(claims, username);
     }
 
-    private String createToken(Map<String, Object> claims, String username) {
-        return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(username)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationTime))
-                .signWith(getSignKey(), SignatureAlgorithm.HS256)
-                .compact();
+    /**
+     * En mode stateless, embarque les rôles et la version des tokens de l'utilisateur
+     * dans les claims ; sinon équivalent à {@link #generateToken(String)}.
+     */
+    public String generateToken(UserDetails userDetails, long tokenVersion) {
+        if (!statelessPrincipal) {
+            return generateToken(userDetails.getUsername());
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith("ROLE_") ? authority.substring(5) : authority)
+                .toList());
+        claims.put(VERSION_CLAIM, tokenVersion);
+        return createToken(claims, userDetails.getUsername());
     }
 
-    private Key getSignKey() {
-        return new SecretKeySpec(secretKey.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+    private String createToken(Map<String, Object> claims, String username) {
+        long now = System.currentTimeMillis();
+        return keyStore.sign(Jwts.builder()
+                        .setClaims(claims)
+                        .setSubject(username)
+                        .setIssuedAt(new Date(now))
+                        .setExpiration(new Date(now + jwtExpirationTime)))
+                .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String tokenUsername = extractUsernameFromToken(token);
-        return (Objects.equals(tokenUsername, userDetails.getUsername()) && !isTokenExpired(token));
+    /**
+     * Parse le token et vérifie sa signature (et son expiration) une seule fois.
+     * @throws io.jsonwebtoken.JwtException si le token est invalide, mal formé ou expiré
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        Date issuedAt = claims.getIssuedAt();
+        Number tokenVersion = claims.get(VERSION_CLAIM, Number.class);
+        return new VerifiedToken(
+                claims.getSubject(),
+                issuedAt != null ? issuedAt.getTime() : 0L,
+                claims.getExpiration().getTime(),
+                extractRoles(claims),
+                tokenVersion != null ? tokenVersion.longValue() : 0L);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static List<String> extractRoles(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().map(String::valueOf).toList();
     }
 
-    public String extractUsernameFromToken(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return Objects.equals(token.username(), userDetails.getUsername())
+                && !token.isExpired(System.currentTimeMillis());
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> getSubject) {
-        final Claims claims = extractAllClaims(token);
-        return getSubject.apply(claims);
+    public Boolean validateToken(String token, UserDetails userDetails) {
+        return validateToken(verify(token), userDetails);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String extractUsernameFromToken(String token) {
+        return verify(token).username();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return new Date(verify(token).expiresAt());
     }
 
 }
@@ -0,0 +1,257 @@
+package com.kata.springsecurity.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Clés de signature des JWT.
+ * <p>
+ * Sans app.jwt.keys-file : un seul secret HS256 (app.secret-key), comme avant.
+ * <p>
+ * Avec app.jwt.keys-file : clés ES256 identifiées par un kid, lues dans un fichier JSON
+ * <pre>
+ * { "active": "2026-10",
+ *   "keys": [ { "kid": "2026-10", "privateKey": "...", "publicKey": "..." },
+ *             { "kid": "2026-07", "publicKey": "..." } ] }
+ * </pre>
+ * (clés en base64 DER, PKCS#8 pour la clé privée et X.509 pour la clé publique ; le PEM est accepté).
+ * Seule la clé active signe ; toutes les clés du fichier vérifient. Rotation sans coupure :
+ * publier la nouvelle clé, la rendre active, puis retirer l'ancienne une fois ses tokens expirés.
+ * Le fichier est relu à chaud quand il change ; un fichier invalide est ignoré (les clés en place restent).
+ * Les clés retirées sont annoncées par un {@link JwtKeysRemovedEvent} (voir {@link VerifiedTokenCache}).
+ * <p>
+ * Le jeu de clés est un instantané immuable remplacé d'un bloc : la résolution d'une clé par kid
+ * sur le chemin de vérification est une simple lecture de map, sans verrou.
+ */
+@Component
+@Slf4j
+public class JwtKeyStore extends SigningKeyResolverAdapter {
+
+    private final Path keysFile;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile KeySet keySet;
+    private volatile long keysFileModified;
+
+    public JwtKeyStore(@Value("${app.secret-key}") String secretKey,
+                       @Value("${app.jwt.keys-file:}") String keysFile,
+                       ApplicationEventPublisher eventPublisher) {
+        this.keysFile = keysFile.isBlank() ? null : Path.of(keysFile);
+        this.eventPublisher = eventPublisher;
+        if (this.keysFile == null) {
+            this.keySet = KeySet.hmac(secretKey);
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * Secret HS256 seul, sans fichier de clés.
+     */
+    public static JwtKeyStore hmac(String secretKey) {
+        return new JwtKeyStore(secretKey, "", event -> {
+        });
+    }
+
+    /**
+     * @return le kid de la clé de signature active, ou null en HS256
+     */
+    public String activeKid() {
+        return keySet.activeKid;
+    }
+
+    /**
+     * Signe avec la clé active (et son kid dans l'en-tête), lues dans un même instantané.
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        KeySet current = keySet;
+        if (current.activeKid != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, current.activeKid);
+        }
+        return builder.signWith(current.signingKey, current.algorithm);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        KeySet current = keySet;
+        if (current.activeKid == null) {
+            return current.signingKey;
+        }
+        String kid = header.getKeyId();
+        Key key = kid != null ? current.verificationKeys.get(kid) : null;
+        if (key == null) {
+            throw new SignatureException("Unknown signing key: " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * Clés publiques au format JWK Set (RFC 7517), pour que d'autres services vérifient les tokens eux-mêmes.
+     */
+    public Map<String, Object> publicJwks() {
+        List<Map<String, Object>> keys = keySet.verificationKeys.entrySet().stream()
+                .filter(entry -> entry.getValue() instanceof ECPublicKey)
+                .map(entry -> toJwk(entry.getKey(), (ECPublicKey) entry.getValue()))
+                .toList();
+        return Map.of("keys", keys);
+    }
+
+    /**
+     * Recharge le fichier de clés s'il a changé depuis la dernière lecture.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void reloadIfChanged() {
+        if (keysFile == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(keysFile).toMillis() != keysFileModified) {
+                reload();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to reload JWT keys from {}, keeping the current keys", keysFile, e);
+        }
+    }
+
+    /**
+     * Relit le fichier de clés et remplace le jeu de clés courant.
+     */
+    public synchronized void reload() {
+        KeySet previous = keySet;
+        try {
+            long modified = Files.getLastModifiedTime(keysFile).toMillis();
+            KeyFile file = objectMapper.readValue(keysFile.toFile(), KeyFile.class);
+            keySet = KeySet.of(file);
+            keysFileModified = modified;
+            log.info("Loaded {} JWT keys from {}, active key {}", keySet.verificationKeys.size(), keysFile, keySet.activeKid);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read JWT keys from " + keysFile, e);
+        }
+        if (previous != null) {
+            Set<String> removed = removedKids(previous, keySet);
+            if (!removed.isEmpty()) {
+                // publié après le remplacement : une vérification qui suit ne trouve plus ces clés
+                log.info("JWT keys {} removed, their tokens are no longer accepted", removed);
+                eventPublisher.publishEvent(new JwtKeysRemovedEvent(removed));
+            }
+        }
+    }
+
+    // clés absentes du nouveau jeu, ou dont le contenu a changé sous le même kid
+    private static Set<String> removedKids(KeySet previous, KeySet current) {
+        return previous.verificationKeys.entrySet().stream()
+                .filter(entry -> !entry.getValue().equals(current.verificationKeys.get(entry.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private static Map<String, Object> toJwk(String kid, ECPublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", SignatureAlgorithm.ES256.getValue());
+        jwk.put("x", coordinate(key.getW().getAffineX()));
+        jwk.put("y", coordinate(key.getW().getAffineY()));
+        return jwk;
+    }
+
+    // coordonnée sur 32 octets exactement (BigInteger ajoute parfois un octet de signe)
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    record KeyFile(String active, List<KeyEntry> keys) {
+    }
+
+    record KeyEntry(String kid, String privateKey, String publicKey) {
+    }
+
+    private static final class KeySet {
+
+        private final SignatureAlgorithm algorithm;
+        private final String activeKid;
+        private final Key signingKey;
+        private final Map<String, Key> verificationKeys;
+
+        private KeySet(SignatureAlgorithm algorithm, String activeKid, Key signingKey, Map<String, Key> verificationKeys) {
+            this.algorithm = algorithm;
+            this.activeKid = activeKid;
+            this.signingKey = signingKey;
+            this.verificationKeys = verificationKeys;
+        }
+
+        private static KeySet hmac(String secretKey) {
+            Key key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+            return new KeySet(SignatureAlgorithm.HS256, null, key, Map.of());
+        }
+
+        private static KeySet of(KeyFile file) {
+            if (file.active() == null || file.keys() == null) {
+                throw new IllegalArgumentException("JWT keys file must define 'active' and 'keys'");
+            }
+            try {
+                KeyFactory keyFactory = KeyFactory.getInstance("EC");
+                Map<String, Key> verificationKeys = new LinkedHashMap<>();
+                PrivateKey signingKey = null;
+                for (KeyEntry entry : file.keys()) {
+                    verificationKeys.put(entry.kid(), keyFactory.generatePublic(new X509EncodedKeySpec(decode(entry.publicKey()))));
+                    if (entry.kid().equals(file.active()) && entry.privateKey() != null) {
+                        signingKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decode(entry.privateKey())));
+                    }
+                }
+                if (signingKey == null) {
+                    throw new IllegalArgumentException("No private key for active JWT key " + file.active());
+                }
+                return new KeySet(SignatureAlgorithm.ES256, file.active(), signingKey, Map.copyOf(verificationKeys));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalArgumentException("Invalid JWT key", e);
+            }
+        }
+
+        private static byte[] decode(String key) {
+            String base64 = Arrays.stream(key.split("\n"))
+                    .filter(line -> !line.startsWith("-----"))
+                    .map(String::strip)
+                    .reduce("", String::concat);
+            return Base64.getMimeDecoder().decode(base64);
+        }
+    }
+}
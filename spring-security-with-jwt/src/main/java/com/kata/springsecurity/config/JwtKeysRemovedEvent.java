@@ -0,0 +1,16 @@
+package com.kata.springsecurity.config;
+
+import java.util.Set;
+
+/**
+ * Publié par {@link JwtKeyStore} quand un rechargement retire des clés de vérification (ou en change le contenu) :
+ * les tokens signés avec elles ne doivent plus être servis par un cache.
+ *
+ * @param kids identifiants des clés retirées
+ */
+public record JwtKeysRemovedEvent(Set<String> kids) {
+
+    public JwtKeysRemovedEvent {
+        kids = Set.copyOf(kids);
+    }
+}
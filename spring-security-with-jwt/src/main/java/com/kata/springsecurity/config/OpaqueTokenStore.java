@@ -0,0 +1,275 @@
+package com.kata.springsecurity.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sessions du mode "opaque token" (app.token.format=opaque) : le client reçoit un identifiant
+ * aléatoire de 128 bits (22 caractères en base64url) au lieu d'un JWT de plusieurs centaines d'octets,
+ * et chaque requête le résout dans cette table en mémoire. Ni signature à vérifier, ni blacklist :
+ * révoquer une session, c'est retirer son entrée.
+ * <p>
+ * La clé est l'identifiant lui-même, rangé dans deux long ({@link TokenDigest}) : pas de hachage
+ * ni de chaîne gardée en mémoire. Une session expire après idle-timeout sans requête, et au plus tard
+ * max-lifetime après sa création. L'échéancier ({@link ExpiryBuckets}) ne porte qu'une échéance par
+ * session : à l'échéance, une session utilisée entre-temps est replanifiée au lieu d'être retirée.
+ * Le nombre de sessions est borné (max-entries) et leur mémoire estimée (jauge auth.opaque.sessions.memory).
+ * <p>
+ * Les sessions sont propres au noeud et perdues au redémarrage : ce mode vise le trafic interne,
+ * sur un seul noeud ou derrière une affinité de session.
+ */
+@Service
+@Slf4j
+public class OpaqueTokenStore implements MeterBinder {
+
+    private static final String FORMAT = "opaque";
+
+    // octets par session, références compressées : Session (48) + clé TokenDigest (32)
+    // + noeud de ConcurrentHashMap (32) et sa case (8) + noeud de l'échéancier (24) ; le username en plus
+    static final long SESSION_BYTES = 144L;
+    private static final int HANDLE_BYTES = 16;
+    private static final int HANDLE_LENGTH = 22;
+    private static final long TICK_MILLIS = 1000L;
+
+    private final ConcurrentHashMap<TokenDigest, Session> sessions = new ConcurrentHashMap<>();
+    private final ExpiryBuckets<TokenDigest> expiries = new ExpiryBuckets<>(TICK_MILLIS);
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder memoryBytes = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final boolean enabled;
+    private final long idleTimeout;
+    private final long maxLifetime;
+    private final long maxEntries;
+
+    public OpaqueTokenStore(@Value("${app.token.format:jwt}") String tokenFormat,
+                            @Value("${app.opaque-token.idle-timeout:30m}") Duration idleTimeout,
+                            @Value("${app.opaque-token.max-lifetime:12h}") Duration maxLifetime,
+                            @Value("${app.opaque-token.max-entries:1000000}") long maxEntries) {
+        this.enabled = FORMAT.equals(tokenFormat);
+        this.idleTimeout = idleTimeout.toMillis();
+        this.maxLifetime = maxLifetime.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return true si les access tokens sont des identifiants opaques plutôt que des JWT
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ouvre une session pour l'utilisateur authentifié.
+     *
+     * @param tokenVersion version des tokens de l'utilisateur (changement de rôles)
+     * @return l'identifiant à renvoyer au client, ou vide si la table est pleine
+     */
+    public Optional<String> issue(UserDetails user, long tokenVersion) {
+        if (sessions.mappingCount() >= maxEntries) {
+            cleanupSessions();
+            if (sessions.mappingCount() >= maxEntries) {
+                // borne mémoire stricte : on refuse la connexion plutôt que de grossir sans limite
+                log.warn("Opaque session table is full ({} entries), login refused", maxEntries);
+                return Optional.empty();
+            }
+        }
+        long now = System.currentTimeMillis();
+        long roleMask = user instanceof UserPrincipal principal ? principal.roleMask() : Role.maskOf(user.getAuthorities());
+        Session session = new Session(user.getUsername(), roleMask, tokenVersion, now);
+        byte[] handle = new byte[HANDLE_BYTES];
+        TokenDigest key;
+        do {
+            random.nextBytes(handle);
+            key = key(handle);
+        } while (sessions.putIfAbsent(key, session) != null);
+        memoryBytes.add(session.memoryBytes());
+        expiries.schedule(key, session.expiresAt(idleTimeout, maxLifetime));
+        return Optional.of(Base64.getUrlEncoder().withoutPadding().encodeToString(handle));
+    }
+
+    /**
+     * Session d'un identifiant présenté par un client ; prolonge sa durée d'inactivité.
+     *
+     * @return null si l'identifiant est inconnu, révoqué ou expiré
+     * @throws IllegalArgumentException si ce n'est pas un identifiant opaque
+     */
+    public Session resolve(String handle) {
+        TokenDigest key = decode(handle);
+        Session session = sessions.get(key);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.expiresAt(idleTimeout, maxLifetime) <= now) {
+            remove(key, session);
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * @return false si l'identifiant ne correspond à aucune session
+     */
+    public boolean revoke(String handle) {
+        TokenDigest key;
+        try {
+            key = decode(handle);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Session session = sessions.get(key);
+        return session != null && remove(key, session);
+    }
+
+    /**
+     * Ferme toutes les sessions de l'utilisateur ("logout everywhere"). Parcourt toute la table :
+     * opération rare, il n'y a pas d'index par utilisateur à maintenir à chaque connexion.
+     *
+     * @return le nombre de sessions fermées
+     */
+    public int revokeAll(String username) {
+        int removed = 0;
+        for (Map.Entry<TokenDigest, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().username.equals(username) && remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public long size() {
+        return sessions.mappingCount();
+    }
+
+    /**
+     * @return estimation de la mémoire occupée par les sessions, en octets
+     */
+    public long memoryBytes() {
+        return memoryBytes.sum();
+    }
+
+    /**
+     * Retire les sessions échues. Seuls les seaux échus sont parcourus ; une session utilisée
+     * depuis sa planification est replanifiée à sa nouvelle échéance.
+     *
+     * @return le nombre de sessions retirées
+     */
+    @Scheduled(fixedRate = 10000)
+    public int cleanupSessions() {
+        long now = System.currentTimeMillis();
+        int[] removed = {0};
+        expiries.expire(now, key -> {
+            Session session = sessions.get(key);
+            if (session == null) {
+                return;
+            }
+            long expiresAt = session.expiresAt(idleTimeout, maxLifetime);
+            if (expiresAt > now) {
+                expiries.schedule(key, expiresAt);
+            } else if (remove(key, session)) {
+                removed[0]++;
+            }
+        });
+        return removed[0];
+    }
+
+    private boolean remove(TokenDigest key, Session session) {
+        if (sessions.remove(key, session)) {
+            memoryBytes.add(-session.memoryBytes());
+            closedCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private static TokenDigest decode(String handle) {
+        if (handle.length() != HANDLE_LENGTH) {
+            throw new IllegalArgumentException("Not an opaque token");
+        }
+        return key(Base64.getUrlDecoder().decode(handle));
+    }
+
+    private static TokenDigest key(byte[] handle) {
+        ByteBuffer buffer = ByteBuffer.wrap(handle);
+        return new TokenDigest(buffer.getLong(), buffer.getLong());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.opaque.sessions", this, OpaqueTokenStore::size)
+                .description("Sessions opaques ouvertes")
+                .register(registry);
+        Gauge.builder("auth.opaque.sessions.memory", this, OpaqueTokenStore::memoryBytes)
+                .description("Mémoire estimée des sessions opaques")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("auth.opaque.sessions.closed", closedCount, LongAdder::sum)
+                .description("Sessions opaques fermées (expiration ou révocation)")
+                .register(registry);
+    }
+
+    /**
+     * Principal compact d'une session : de quoi reconstruire un {@link UserPrincipal} sans lecture en base.
+     */
+    public static final class Session {
+
+        private final String username;
+        private final long roleMask;
+        private final long tokenVersion;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        private Session(String username, long roleMask, long tokenVersion, long createdAt) {
+            this.username = username;
+            this.roleMask = roleMask;
+            this.tokenVersion = tokenVersion;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+
+        public String username() {
+            return username;
+        }
+
+        public long roleMask() {
+            return roleMask;
+        }
+
+        public long tokenVersion() {
+            return tokenVersion;
+        }
+
+        private long expiresAt(long idleTimeout, long maxLifetime) {
+            return Math.min(lastAccess + idleTimeout, createdAt + maxLifetime);
+        }
+
+        // une écriture par tick au plus : des requêtes concurrentes d'une même session ne se disputent pas la ligne de cache
+        private void touch(long now) {
+            if (now - lastAccess >= TICK_MILLIS) {
+                lastAccess = now;
+            }
+        }
+
+        private long memoryBytes() {
+            // String compacte (Latin-1) : en-tête et tableau d'octets
+            return SESSION_BYTES + 40L + username.length();
+        }
+    }
+}
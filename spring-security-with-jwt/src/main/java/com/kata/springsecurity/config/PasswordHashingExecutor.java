@@ -0,0 +1,128 @@
+package com.kata.springsecurity.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cloison ("bulkhead") pour le hachage des mots de passe (BCrypt) : un nombre fixe de threads
+ * et une file bornée. Une rafale de logins ne peut plus occuper tous les threads Tomcat ;
+ * quand la file est pleine la demande est refusée immédiatement au lieu d'attendre.
+ * <p>
+ * Les threads de hachage ne font que du BCrypt : la suite (accès base, émission des tokens) est
+ * reprise par l'exécuteur applicatif, sans quoi une base lente immobiliserait la cloison.
+ */
+@Component
+public class PasswordHashingExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+    private final Executor continuationExecutor;
+    private final LongAdder rejected = new LongAdder();
+    // renseignés quand les métriques sont branchées
+    private volatile Timer waitTimer;
+    private volatile Timer hashTimer;
+
+    /**
+     * @param threads       nombre de threads (budget CPU) ; 0 = la moitié des processeurs
+     * @param queueCapacity nombre de demandes en attente au-delà duquel on refuse
+     * @param continuationExecutor exécute la suite d'un hachage (threads virtuels si spring.threads.virtual.enabled)
+     */
+    public PasswordHashingExecutor(@Value("${app.password-hashing.threads:0}") int threads,
+                                   @Value("${app.password-hashing.queue-capacity:100}") int queueCapacity,
+                                   @Qualifier("applicationTaskExecutor") Executor continuationExecutor) {
+        this.continuationExecutor = continuationExecutor;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Exécute la tâche sur les threads de hachage.
+     *
+     * @return un future en échec avec {@link RejectedExecutionException} si la file est pleine
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                record(waitTimer, startedAt - submittedAt);
+                try {
+                    return task.get();
+                } finally {
+                    record(hashTimer, System.nanoTime() - startedAt);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Hache sur les threads de hachage, puis applique next (accès base...) sur l'exécuteur applicatif.
+     *
+     * @return un future en échec avec {@link RejectedExecutionException} si la file est pleine
+     */
+    public <T, R> CompletableFuture<R> submit(Supplier<T> hashing, Function<? super T, ? extends R> next) {
+        return submit(hashing).thenApplyAsync(next, continuationExecutor);
+    }
+
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("password.hashing.queue.size", this, PasswordHashingExecutor::queueSize)
+                .description("Demandes de hachage en attente d'un thread")
+                .register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Threads de hachage occupés")
+                .register(registry);
+        FunctionCounter.builder("password.hashing.rejected", rejected, LongAdder::sum)
+                .description("Demandes refusées car la file était pleine")
+                .register(registry);
+        waitTimer = Timer.builder("password.hashing.wait")
+                .description("Attente dans la file avant le hachage")
+                .register(registry);
+        hashTimer = Timer.builder("password.hashing.duration")
+                .description("Durée des hachages (login, inscription), hors accès base")
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
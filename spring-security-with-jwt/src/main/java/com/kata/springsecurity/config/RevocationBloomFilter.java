@@ -0,0 +1,186 @@
+package com.kata.springsecurity.config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtre de Bloom découpé en tranches de temps, sans verrou, placé devant la blacklist.
+ * Chaque token révoqué est ajouté dans la tranche qui couvre sa date d'expiration ; une tranche
+ * dont toutes les expirations sont passées est simplement ignorée puis remplacée. Une réponse
+ * négative signifie "certainement pas révoqué" : la map de la blacklist n'est alors pas consultée.
+ * <p>
+ * Filtre "par bloc de registre" : les k bits d'une clé tombent dans un même mot de 64 bits,
+ * une seule lecture mémoire par tranche au lieu de k accès aléatoires.
+ * <p>
+ * Une tranche n'est jamais vidée en place : elle est remplacée par une nouvelle instance (CAS),
+ * ce qui évite de perdre un ajout concurrent (un faux négatif serait une faille).
+ */
+public class RevocationBloomFilter {
+
+    // k bits pris 6 par 6 dans la moitié basse de l'empreinte : au plus 10
+    private static final int MAX_HASHES = 10;
+
+    private final long sliceMillis;
+    private final int wordMask;
+    private final int hashCount;
+    private final AtomicReferenceArray<Slice> slices;
+    // au-delà de l'horizon couvert par les tranches : on laisse tout passer vers la map
+    private volatile long overflowUntil;
+
+    // seul le chemin rare (réponse positive) est compté : rien n'est écrit sur le chemin "non révoqué"
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param maxTokenLifetimeMillis durée de vie maximale d'un token (horizon à couvrir)
+     * @param slicesPerLifetime      nombre de tranches sur cette durée de vie
+     * @param expectedPerSlice       nombre de révocations attendues par tranche
+     * @param falsePositiveRate      taux de faux positifs visé par tranche
+     */
+    public RevocationBloomFilter(long maxTokenLifetimeMillis, int slicesPerLifetime, long expectedPerSlice, double falsePositiveRate) {
+        this.sliceMillis = Math.max(1L, maxTokenLifetimeMillis / slicesPerLifetime);
+        // +2 : la tranche en cours d'expiration et celle qui déborde de l'horizon
+        this.slices = new AtomicReferenceArray<>(slicesPerLifetime + 2);
+        // un filtre bloqué a besoin d'environ 1,5x plus de bits que le filtre classique pour le même taux
+        double optimalBits = 1.5 * -expectedPerSlice * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int words = Integer.highestOneBit((int) Math.min(1 << 26, Math.max(1L, (long) optimalBits >>> 6)) - 1) << 1;
+        this.wordMask = Math.max(1, words) - 1;
+        this.hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(64.0 * (wordMask + 1) / expectedPerSlice * Math.log(2))));
+    }
+
+    public void add(TokenDigest digest, long expiresAt) {
+        long nowEpoch = System.currentTimeMillis() / sliceMillis;
+        long epoch = expiresAt / sliceMillis;
+        if (epoch < nowEpoch) {
+            return;
+        }
+        if (epoch - nowEpoch >= slices.length() - 1) {
+            synchronized (this) {
+                overflowUntil = Math.max(overflowUntil, expiresAt);
+            }
+            return;
+        }
+        sliceFor(epoch).add(digest, wordMask, hashCount);
+    }
+
+    /**
+     * Pas de lecture d'horloge ici : une tranche échue encore présente ne peut que produire
+     * des faux positifs, jusqu'à ce que {@link #expireSlices(long)} la libère.
+     *
+     * @return false si le token n'a certainement pas été révoqué
+     */
+    public boolean mightContain(TokenDigest digest) {
+        if (overflowUntil != 0L) {
+            return true;
+        }
+        for (int i = 0; i < slices.length(); i++) {
+            Slice slice = slices.get(i);
+            if (slice != null && slice.mightContain(digest, wordMask, hashCount)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * À appeler quand {@link #mightContain} a répondu vrai mais que la map ne contenait pas le token.
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public long falsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Taux de faux positifs estimé à partir du remplissage des tranches vivantes.
+     */
+    public double estimatedFalsePositiveRate() {
+        long nowEpoch = System.currentTimeMillis() / sliceMillis;
+        double allNegative = 1.0;
+        for (int i = 0; i < slices.length(); i++) {
+            Slice slice = slices.get(i);
+            if (slice != null && slice.epoch >= nowEpoch) {
+                double fill = (double) slice.bitCount() / ((wordMask + 1L) * 64);
+                allNegative *= 1.0 - Math.pow(fill, hashCount);
+            }
+        }
+        return 1.0 - allNegative;
+    }
+
+    /**
+     * Libère les tranches dont tous les tokens ont expiré.
+     */
+    public void expireSlices(long now) {
+        synchronized (this) {
+            if (overflowUntil != 0L && overflowUntil < now) {
+                overflowUntil = 0L;
+            }
+        }
+        long nowEpoch = now / sliceMillis;
+        for (int i = 0; i < slices.length(); i++) {
+            Slice slice = slices.get(i);
+            if (slice != null && slice.epoch < nowEpoch) {
+                slices.compareAndSet(i, slice, null);
+            }
+        }
+    }
+
+    private Slice sliceFor(long epoch) {
+        int index = (int) Math.floorMod(epoch, (long) slices.length());
+        while (true) {
+            Slice slice = slices.get(index);
+            if (slice != null && slice.epoch >= epoch) {
+                return slice;
+            }
+            Slice fresh = new Slice(epoch, wordMask + 1);
+            if (slices.compareAndSet(index, slice, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static final class Slice {
+
+        private final long epoch;
+        private final AtomicLongArray words;
+
+        private Slice(long epoch, int words) {
+            this.epoch = epoch;
+            this.words = new AtomicLongArray(words);
+        }
+
+        // les 128 bits du SHA-256 sont déjà uniformes : hi choisit le mot, lo fournit les k positions
+        private static long bits(TokenDigest digest, int hashCount) {
+            long lo = digest.lo();
+            long bits = 0L;
+            for (int i = 0; i < hashCount; i++, lo >>>= 6) {
+                bits |= 1L << (lo & 63);
+            }
+            return bits;
+        }
+
+        private void add(TokenDigest digest, int wordMask, int hashCount) {
+            int word = (int) (digest.hi() & wordMask);
+            long bits = bits(digest, hashCount);
+            long current;
+            while (((current = words.get(word)) & bits) != bits && !words.compareAndSet(word, current, current | bits)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private boolean mightContain(TokenDigest digest, int wordMask, int hashCount) {
+            long bits = bits(digest, hashCount);
+            return (words.get((int) (digest.hi() & wordMask)) & bits) == bits;
+        }
+
+        private long bitCount() {
+            long count = 0;
+            for (int i = 0; i < words.length(); i++) {
+                count += Long.bitCount(words.get(i));
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.kata.springsecurity.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Journal des révocations en ajout seul, sur des segments de fichiers mappés en mémoire
+ * (app.revocation-log.enabled). Un logout n'ajoute qu'une écriture en mémoire mappée, sans
+ * aller-retour base de données ; au redémarrage les segments sont relus directement depuis
+ * le mapping pour recharger la blacklist.
+ * <p>
+ * Enregistrement de taille fixe (24 octets) : empreinte (2 x 8 octets) puis expiration (8 octets),
+ * écrite en dernier. Une expiration à 0 marque la fin des données d'un segment. Un segment est
+ * supprimé dès que toutes les révocations qu'il contient ont expiré.
+ */
+@Component
+@ConditionalOnProperty(name = "app.revocation-log.enabled", havingValue = "true")
+@Slf4j
+public class RevocationLog {
+
+    static final int RECORD_SIZE = 24;
+    private static final String SEGMENT_PREFIX = "revocations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final TokenBlacklistService tokenBlacklistService;
+    private final Path directory;
+    private final int recordsPerSegment;
+
+    // segments pleins en attente d'expiration ; le segment actif est à part
+    private final List<Segment> sealedSegments = new ArrayList<>();
+    private Segment activeSegment;
+    private MappedByteBuffer activeBuffer;
+    private int activePosition;
+
+    public RevocationLog(TokenBlacklistService tokenBlacklistService,
+                         @Value("${app.revocation-log.dir:./data/revocations}") Path directory,
+                         @Value("${app.revocation-log.records-per-segment:262144}") int recordsPerSegment) {
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+    }
+
+    /**
+     * Relit tous les segments et recharge les révocations encore valides dans la blacklist.
+     */
+    @PostConstruct
+    public synchronized void replay() throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : paths) {
+            Segment segment = new Segment(path, sequenceOf(path));
+            MappedByteBuffer buffer = map(path, FileChannel.MapMode.READ_ONLY, Files.size(path));
+            int records = (int) (buffer.capacity() / RECORD_SIZE);
+            int position = 0;
+            for (; position < records; position++) {
+                int offset = position * RECORD_SIZE;
+                long expiresAt = buffer.getLong(offset + 16);
+                if (expiresAt == 0L) {
+                    break;
+                }
+                segment.maxExpiresAt = Math.max(segment.maxExpiresAt, expiresAt);
+                if (expiresAt > now && tokenBlacklistService.restore(new TokenDigest(buffer.getLong(offset), buffer.getLong(offset + 8)), expiresAt)) {
+                    restored++;
+                }
+            }
+            if (segment.maxExpiresAt <= now) {
+                Files.deleteIfExists(path);
+            } else if (position < recordsPerSegment && records == recordsPerSegment && activeSegment == null && path.equals(paths.get(paths.size() - 1))) {
+                // dernier segment incomplet : on reprend l'écriture là où elle s'était arrêtée
+                activeSegment = segment;
+                activeBuffer = map(path, FileChannel.MapMode.READ_WRITE, (long) recordsPerSegment * RECORD_SIZE);
+                activePosition = position;
+            } else {
+                sealedSegments.add(segment);
+            }
+        }
+        log.info("Replayed {} revocations from {} segments in {} ms", restored, paths.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        if (event.origin() == TokenRevokedEvent.Origin.LOCAL) {
+            append(event.digest(), event.expiresAt());
+        }
+    }
+
+    public synchronized void append(TokenDigest digest, long expiresAt) {
+        if (activeSegment == null || activePosition == recordsPerSegment) {
+            roll();
+        }
+        int offset = activePosition * RECORD_SIZE;
+        activeBuffer.putLong(offset, digest.hi());
+        activeBuffer.putLong(offset + 8, digest.lo());
+        // l'expiration en dernier : un enregistrement à moitié écrit reste marqué comme fin de segment
+        activeBuffer.putLong(offset + 16, expiresAt);
+        activePosition++;
+        activeSegment.maxExpiresAt = Math.max(activeSegment.maxExpiresAt, expiresAt);
+    }
+
+    /**
+     * Force l'écriture sur disque du segment actif (le page cache survit déjà à un arrêt du processus)
+     * et supprime les segments dont toutes les révocations ont expiré.
+     */
+    @Scheduled(fixedRate = 10000)
+    public synchronized void flushAndCleanup() {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+        long now = System.currentTimeMillis();
+        sealedSegments.removeIf(segment -> {
+            if (segment.maxExpiresAt > now) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Unable to delete expired revocation segment {}", segment.path, e);
+                return false;
+            }
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+        }
+    }
+
+    public synchronized int segmentCount() {
+        return sealedSegments.size() + (activeSegment != null ? 1 : 0);
+    }
+
+    private void roll() {
+        if (activeSegment != null) {
+            activeBuffer.force();
+            sealedSegments.add(activeSegment);
+        }
+        long sequence = activeSegment != null ? activeSegment.sequence + 1 : nextSequence();
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        activeSegment = new Segment(path, sequence);
+        activeBuffer = map(path, FileChannel.MapMode.READ_WRITE, (long) recordsPerSegment * RECORD_SIZE);
+        activePosition = 0;
+    }
+
+    private long nextSequence() {
+        return sealedSegments.stream().mapToLong(segment -> segment.sequence).max().orElse(0L) + 1;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            // le mapping reste valide après la fermeture du canal
+            return channel.map(mode, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long sequence;
+        private long maxExpiresAt;
+
+        private Segment(Path path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kata.springsecurity.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+
+/**
+ * Active {@link ScopedValueSecurityContextHolderStrategy} (app.security.context-strategy=scoped-value).
+ * Nécessite de lancer la JVM avec --enable-preview (ScopedValue est en aperçu en Java 21).
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.security.context-strategy", havingValue = "scoped-value")
+public class ScopedValueSecurityContextConfig {
+
+    @Bean
+    public SecurityContextHolderStrategy securityContextHolderStrategy() {
+        SecurityContextHolderStrategy strategy = new ScopedValueSecurityContextHolderStrategy();
+        // JWTFilter et le reste du code passent par SecurityContextHolder
+        SecurityContextHolder.setContextHolderStrategy(strategy);
+        return strategy;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ScopedSecurityContextFilter> scopedSecurityContextFilter() {
+        FilterRegistrationBean<ScopedSecurityContextFilter> registration = new FilterRegistrationBean<>(new ScopedSecurityContextFilter());
+        // avant la chaîne de Spring Security
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
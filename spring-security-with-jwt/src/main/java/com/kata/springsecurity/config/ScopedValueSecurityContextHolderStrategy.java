@@ -0,0 +1,93 @@
+package com.kata.springsecurity.config;
+
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * {@link SecurityContextHolderStrategy} adossée à un {@link ScopedValue} (aperçu en Java 21)
+ * plutôt qu'à un ThreadLocal.
+ * <p>
+ * {@link ScopedSecurityContextFilter} ouvre une portée par requête : le contexte vit dans cette
+ * portée et disparaît avec elle, même si un filtre oublie de le vider. Rien ne reste attaché
+ * au thread, ce qui convient aux threads virtuels (un par requête, jamais réutilisés).
+ * Hors requête (démarrage, tâches planifiées), un ThreadLocal classique prend le relais.
+ */
+public final class ScopedValueSecurityContextHolderStrategy implements SecurityContextHolderStrategy {
+
+    private static final ScopedValue<Holder> CONTEXT = ScopedValue.newInstance();
+
+    private final ThreadLocal<Holder> outsideScope = ThreadLocal.withInitial(Holder::new);
+
+    /**
+     * Exécute la tâche dans une nouvelle portée, avec un contexte de sécurité vide.
+     */
+    public static <T> T callInScope(Callable<T> task) throws Exception {
+        return ScopedValue.where(CONTEXT, new Holder()).call(task);
+    }
+
+    @Override
+    public void clearContext() {
+        holder().deferredContext = null;
+        if (!CONTEXT.isBound()) {
+            outsideScope.remove();
+        }
+    }
+
+    @Override
+    public SecurityContext getContext() {
+        return getDeferredContext().get();
+    }
+
+    @Override
+    public Supplier<SecurityContext> getDeferredContext() {
+        Holder holder = holder();
+        Supplier<SecurityContext> deferredContext = holder.deferredContext;
+        if (deferredContext == null) {
+            SecurityContext context = createEmptyContext();
+            deferredContext = () -> context;
+            holder.deferredContext = deferredContext;
+        }
+        return deferredContext;
+    }
+
+    @Override
+    public void setContext(SecurityContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Only non-null SecurityContext instances are permitted");
+        }
+        holder().deferredContext = () -> context;
+    }
+
+    @Override
+    public void setDeferredContext(Supplier<SecurityContext> deferredContext) {
+        if (deferredContext == null) {
+            throw new IllegalArgumentException("Only non-null Supplier instances are permitted");
+        }
+        holder().deferredContext = SingletonSupplier.of(() -> {
+            SecurityContext context = deferredContext.get();
+            if (context == null) {
+                throw new IllegalArgumentException("A Supplier<SecurityContext> returned null and is not allowed.");
+            }
+            return context;
+        });
+    }
+
+    @Override
+    public SecurityContext createEmptyContext() {
+        return new SecurityContextImpl();
+    }
+
+    private Holder holder() {
+        return CONTEXT.isBound() ? CONTEXT.get() : outsideScope.get();
+    }
+
+    // la liaison d'un ScopedValue est immuable : on lie un conteneur, dont le contenu change
+    private static final class Holder {
+        private Supplier<SecurityContext> deferredContext;
+    }
+}
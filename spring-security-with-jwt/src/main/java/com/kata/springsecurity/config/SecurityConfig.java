@@ -2,10 +2,19 @@ package com.kata.springsecurity.config;
 
 
 import com.kata.springsecurity.config.filter.JWTFilter;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics;
+import com.kata.springsecurity.config.filter.OpaqueTokenFilter;
+import com.kata.springsecurity.config.route.RouteAuthorizationManager;
+import com.kata.springsecurity.service.CachingUserDetailService;
 import com.kata.springsecurity.service.CustomUserDetailService;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import jakarta.servlet.Filter;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -15,20 +24,31 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.Map;
+
 
 @Configuration
 @AllArgsConstructor
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
+
     private final CustomUserDetailService customUserDetailService;
     private final JWTUtils jwtUtils;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final UserTokenVersionService tokenVersionService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final JwtFilterMetrics jwtFilterMetrics;
+    private final RouteAuthorizationManager routeAuthorizationManager;
+    private final OpaqueTokenStore opaqueTokenStore;
 
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
@@ -36,30 +56,60 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(BCryptPasswordEncoder passwordEncoder) {
+    @Primary
+    public CachingUserDetailService cachingUserDetailService(@Value("${app.user-cache.max-size:10000}") long maxSize,
+                                                             @Value("${app.user-cache.ttl:60s}") Duration ttl,
+                                                             @Value("${app.user-cache.negative-ttl:5s}") Duration negativeTtl) {
+        return new CachingUserDetailService(customUserDetailService, maxSize, ttl, negativeTtl);
+    }
+
+    // un hash qui n'est plus au format courant est réécrit après un login réussi (UserDetailsPasswordService)
+    @Bean
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder, CachingUserDetailService userDetailsService) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
-        provider.setUserDetailsService(customUserDetailService);
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
+    // coût fixé par app.password.bcrypt.strength, ou calibré sur cette machine au démarrage (strength=0)
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public MeteredBCryptPasswordEncoder bCryptPasswordEncoder(@Value("${app.password.bcrypt.strength:0}") int strength,
+                                                              @Value("${app.password.bcrypt.target-duration:100ms}") Duration targetDuration,
+                                                              @Value("${app.password.bcrypt.min-strength:10}") int minStrength,
+                                                              @Value("${app.password.bcrypt.max-strength:14}") int maxStrength) {
+        return new MeteredBCryptPasswordEncoder(strength > 0 ? strength : BCryptCostCalibrator.calibrate(targetDuration, minStrength, maxStrength));
     }
 
+    // hashs écrits préfixés {bcrypt} ; les hashs sans préfixe (antérieurs) restent vérifiés par BCrypt,
+    // et upgradeEncoding les signale, comme ceux d'un coût inférieur au coût courant
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    @Primary
+    public PasswordEncoder passwordEncoder(MeteredBCryptPasswordEncoder bCryptPasswordEncoder) {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bCryptPasswordEncoder));
+        encoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return encoder;
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, CachingUserDetailService userDetailsService) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
+                // règles des routes (route-rules.conf ou table http_route_rule) compilées en arbre de chemins,
+                // au lieu d'une liste de requestMatchers testés un à un
                 .authorizeHttpRequests(authorizeRequests -> authorizeRequests
-                        .requestMatchers("/api/auth/*").permitAll()
-                        .requestMatchers("/api/public").permitAll()
-                        .requestMatchers("/api/protected").hasRole("USER")
-                        .requestMatchers("/api/admin").hasRole("ADMIN")
-                        .anyRequest().authenticated()
+                        .anyRequest().access(routeAuthorizationManager)
                 )
-                .addFilterBefore(new JWTFilter(jwtUtils, customUserDetailService,tokenBlacklistService), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(tokenFilter(userDetailsService), UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
+
+    // app.token.format : JWT autoporteurs, ou identifiants opaques résolus dans la table de sessions
+    private Filter tokenFilter(CachingUserDetailService userDetailsService) {
+        if (opaqueTokenStore.isEnabled()) {
+            return new OpaqueTokenFilter(opaqueTokenStore, tokenVersionService, jwtFilterMetrics);
+        }
+        return new JWTFilter(jwtUtils, userDetailsService, tokenBlacklistService, verifiedTokenCache, tokenVersionService, tokenWatermarkService, jwtFilterMetrics);
+    }
 }
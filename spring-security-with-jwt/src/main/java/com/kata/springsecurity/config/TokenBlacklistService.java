@@ -1,40 +1,151 @@
 package com.kata.springsecurity.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-public class TokenBlacklistService {
+@Slf4j
+public class TokenBlacklistService implements MeterBinder {
 
-    private final Map<String, Long> blacklist = new ConcurrentHashMap<>();
+    // clé de taille fixe (128 bits) plutôt que le JWT complet ; valeur = expiration du token
+    private final ConcurrentHashMap<TokenDigest, Long> blacklist = new ConcurrentHashMap<>();
+    private final ExpiryBuckets<TokenDigest> expiries;
+    // pré-filtre : la grande majorité des tokens ne sont pas révoqués (null si désactivé)
+    private final RevocationBloomFilter bloomFilter;
+    private final long maxEntries;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public TokenBlacklistService(ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.blacklist.max-entries:1000000}") long maxEntries,
+                                 @Value("${app.blacklist.bucket-millis:1000}") long bucketMillis,
+                                 @Value("${app.blacklist.bloom.enabled:false}") boolean bloomEnabled,
+                                 @Value("${app.blacklist.bloom.expected-per-slice:500000}") long bloomExpectedPerSlice,
+                                 @Value("${app.expiration-time}") long maxTokenLifetime) {
+        this.eventPublisher = eventPublisher;
+        this.maxEntries = maxEntries;
+        this.expiries = new ExpiryBuckets<>(bucketMillis);
+        this.bloomFilter = bloomEnabled
+                ? new RevocationBloomFilter(maxTokenLifetime, 1, bloomExpectedPerSlice, 0.01)
+                : null;
+    }
 
     /**
      * Ajoute le token à la blacklist
      * @param token le JWT à invalider
      * @param expirationDate epoch (en ms) indiquant quand le token expire
+     * @return false si la blacklist est pleine (le token n'a pas pu être révoqué)
+     */
+    public boolean blacklistToken(String token, long expirationDate) {
+        return blacklist(TokenDigest.of(token), expirationDate);
+    }
+
+    public boolean blacklist(TokenDigest digest, long expirationDate) {
+        return blacklist(digest, expirationDate, TokenRevokedEvent.Origin.LOCAL);
+    }
+
+    /**
+     * Recharge une révocation déjà journalisée (redémarrage) : elle n'est pas rejournalisée.
+     */
+    public boolean restore(TokenDigest digest, long expirationDate) {
+        return blacklist(digest, expirationDate, TokenRevokedEvent.Origin.REPLAY);
+    }
+
+    /**
+     * Applique une révocation faite sur un autre noeud : elle n'est ni rejournalisée ni repropagée.
      */
-    public void blacklistToken(String token, long expirationDate) {
-        blacklist.put(token, expirationDate);
+    public boolean applyRemote(TokenDigest digest, long expirationDate) {
+        return blacklist(digest, expirationDate, TokenRevokedEvent.Origin.REMOTE);
+    }
+
+    private boolean blacklist(TokenDigest digest, long expirationDate, TokenRevokedEvent.Origin origin) {
+        if (expirationDate <= System.currentTimeMillis()) {
+            // déjà expiré : le parser le refusera de toute façon
+            return true;
+        }
+        if (blacklist.mappingCount() >= maxEntries) {
+            cleanupBlacklist();
+            if (blacklist.mappingCount() >= maxEntries) {
+                // borne mémoire stricte : on refuse plutôt que d'oublier une révocation existante
+                log.warn("Token blacklist is full ({} entries), revocation refused", maxEntries);
+                return false;
+            }
+        }
+        if (bloomFilter != null) {
+            // avant la map : un lecteur qui voit l'entrée dans la map la voit aussi dans le filtre
+            bloomFilter.add(digest, expirationDate);
+        }
+        if (blacklist.putIfAbsent(digest, expirationDate) == null) {
+            expiries.schedule(digest, expirationDate);
+            // prévient les caches (ex. VerifiedTokenCache) qui détiennent encore ce token ; déjà révoqué : déjà fait,
+            // et ni rejournalisé ni repropagé
+            eventPublisher.publishEvent(new TokenRevokedEvent(digest, expirationDate, origin));
+        }
+        return true;
     }
 
     /**
      * Vérifie si le token est dans la blacklist
      */
     public boolean isTokenBlacklisted(String token) {
-        // on peut également vérifier si l'heure actuelle < expirationDate stockée,
-        // et nettoyer la map si besoin
-        return blacklist.containsKey(token);
+        return isBlacklisted(TokenDigest.of(token));
+    }
+
+    public boolean isBlacklisted(TokenDigest digest) {
+        if (bloomFilter != null && !bloomFilter.mightContain(digest)) {
+            return false;
+        }
+        boolean blacklisted = blacklist.containsKey(digest);
+        if (!blacklisted && bloomFilter != null) {
+            bloomFilter.recordFalsePositive();
+        }
+        return blacklisted;
+    }
+
+    public long size() {
+        return blacklist.mappingCount();
     }
 
     /**
-     * Méthode de nettoyage optionnelle pour retirer les tokens expirés de la blacklist
+     * Retire les tokens expirés de la blacklist. Seuls les seaux échus sont parcourus.
+     * @return le nombre d'entrées retirées
      */
-    @Scheduled(fixedRate = 10000) // par ex. toutes les 30 secondes
-    public void cleanupBlacklist() {
+    @Scheduled(fixedRate = 10000)
+    public int cleanupBlacklist() {
         long now = System.currentTimeMillis();
-        blacklist.entrySet().removeIf(entry -> entry.getValue() < now);
+        if (bloomFilter != null) {
+            bloomFilter.expireSlices(now);
+        }
+        int[] removed = {0};
+        expiries.expire(now, digest -> {
+            Long expiration = blacklist.get(digest);
+            if (expiration != null && expiration <= now && blacklist.remove(digest, expiration)) {
+                removed[0]++;
+            }
+        });
+        return removed[0];
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("token.blacklist.size", this, TokenBlacklistService::size)
+                .description("Nombre de tokens révoqués non expirés")
+                .register(registry);
+        if (bloomFilter != null) {
+            Gauge.builder("token.blacklist.bloom.false.positive.rate", bloomFilter, RevocationBloomFilter::estimatedFalsePositiveRate)
+                    .description("Taux de faux positifs estimé d'après le remplissage du filtre")
+                    .register(registry);
+            FunctionCounter.builder("token.blacklist.bloom.false.positives", bloomFilter, RevocationBloomFilter::falsePositiveCount)
+                    .description("Réponses positives du filtre pour un token non révoqué")
+                    .register(registry);
+        }
     }
-}
\ No newline at end of file
+}
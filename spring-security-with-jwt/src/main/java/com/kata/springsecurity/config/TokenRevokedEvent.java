@@ -0,0 +1,24 @@
+package com.kata.springsecurity.config;
+
+/**
+ * Publié par {@link TokenBlacklistService} quand un token est révoqué.
+ *
+ * @param digest    empreinte du token révoqué
+ * @param expiresAt epoch (en ms) d'expiration du token
+ * @param origin    d'où vient la révocation
+ */
+public record TokenRevokedEvent(TokenDigest digest, long expiresAt, Origin origin) {
+
+    public TokenRevokedEvent(TokenDigest digest, long expiresAt) {
+        this(digest, expiresAt, Origin.LOCAL);
+    }
+
+    public enum Origin {
+        /** révocation demandée sur ce noeud (logout) */
+        LOCAL,
+        /** révocation rechargée au démarrage depuis le journal local */
+        REPLAY,
+        /** révocation reçue d'un autre noeud (propagation) */
+        REMOTE
+    }
+}
@@ -0,0 +1,33 @@
+package com.kata.springsecurity.config;
+
+import java.util.List;
+
+/**
+ * Résultat immuable d'une vérification de JWT : le token a été parsé et sa signature
+ * vérifiée une seule fois, les claims utiles sont ensuite partagés par le filtre,
+ * la validation et le logout.
+ *
+ * @param username     le subject du token
+ * @param issuedAt     epoch (en ms) d'émission du token
+ * @param expiresAt    epoch (en ms) d'expiration du token
+ * @param roles        les rôles embarqués (mode stateless), ou {@code null} si absents du token
+ * @param tokenVersion la version des tokens de l'utilisateur au moment de l'émission
+ */
+public record VerifiedToken(String username, long issuedAt, long expiresAt, List<String> roles, long tokenVersion) {
+
+    public VerifiedToken(String username, long issuedAt, long expiresAt) {
+        this(username, issuedAt, expiresAt, null, 0L);
+    }
+
+    public VerifiedToken {
+        roles = roles != null ? List.copyOf(roles) : null;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+
+    public boolean hasRoles() {
+        return roles != null;
+    }
+}
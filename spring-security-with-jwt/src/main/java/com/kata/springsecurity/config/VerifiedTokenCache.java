@@ -0,0 +1,129 @@
+package com.kata.springsecurity.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache optionnel (app.token-cache.enabled) des tokens déjà vérifiés, placé devant {@link JWTUtils}.
+ * Un client réutilise le même token pendant toute sa durée de vie : on évite de re-vérifier
+ * la signature HS256 à chaque requête. Les entrées sont indexées par {@link TokenDigest},
+ * expirent à l'exp du token, et sont retirées dès que le token est révoqué. Quand une clé de signature
+ * est retirée du fichier de clés ({@link JwtKeysRemovedEvent}), tout le cache est vidé : les tokens signés
+ * avec elle doivent échouer à la prochaine vérification.
+ */
+@Component
+@Slf4j
+public class VerifiedTokenCache {
+
+    private final JWTUtils jwtUtils;
+    private final Cache<TokenDigest, VerifiedToken> cache;
+    // avancé à chaque retrait de clés, avant de vider le cache
+    private final AtomicLong keysGeneration = new AtomicLong();
+
+    public VerifiedTokenCache(JWTUtils jwtUtils,
+                              @Value("${app.token-cache.enabled:false}") boolean enabled,
+                              @Value("${app.token-cache.max-size:100000}") long maxSize) {
+        this.jwtUtils = jwtUtils;
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(maxSize) // éviction W-TinyLFU
+                        .expireAfter(new UntilTokenExpiry())
+                        .recordStats()
+                        .build()
+                : null;
+        log.info("Verified token cache {}", enabled ? "enabled (max " + maxSize + " entries)" : "disabled");
+    }
+
+    /**
+     * Retourne le token vérifié depuis le cache, ou le vérifie via {@link JWTUtils#verify(String)}.
+     * @throws io.jsonwebtoken.JwtException si le token est invalide, mal formé ou expiré
+     */
+    public VerifiedToken verify(String token) {
+        if (cache == null) {
+            return jwtUtils.verify(token);
+        }
+        return verify(token, TokenDigest.of(token));
+    }
+
+    public VerifiedToken verify(String token, TokenDigest digest) {
+        if (cache == null) {
+            return jwtUtils.verify(token);
+        }
+        long generation = keysGeneration.get();
+        VerifiedToken verified = cache.get(digest, key -> jwtUtils.verify(token));
+        if (keysGeneration.get() != generation) {
+            // vérifié, peut-être avec une clé retirée entre-temps, et mis en cache après le vidage
+            cache.invalidate(digest);
+            return jwtUtils.verify(token);
+        }
+        return verified;
+    }
+
+    public void invalidate(TokenDigest digest) {
+        if (cache != null) {
+            cache.invalidate(digest);
+        }
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        invalidate(event.digest());
+    }
+
+    /**
+     * Le kid n'est pas gardé avec les entrées : le cache est vidé entièrement (événement rare).
+     */
+    @EventListener
+    public void onJwtKeysRemoved(JwtKeysRemovedEvent event) {
+        if (cache != null) {
+            keysGeneration.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Compteurs hits / misses / évictions (vide si le cache est désactivé).
+     */
+    public CacheStats stats() {
+        return cache != null ? cache.stats() : CacheStats.empty();
+    }
+
+    public long size() {
+        return cache != null ? cache.estimatedSize() : 0L;
+    }
+
+    /**
+     * Une entrée vit exactement jusqu'à l'exp du token qu'elle représente.
+     */
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAt() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package com.kata.springsecurity.config.filter;
 
 import com.kata.springsecurity.config.TokenBlacklistService;
-import com.kata.springsecurity.service.CustomUserDetailService;
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
 import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.config.VerifiedToken;
+import com.kata.springsecurity.config.VerifiedTokenCache;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics.Outcome;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics.Stage;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SecurityException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,6 +22,8 @@ import lombok.AllArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -23,12 +36,17 @@ import java.io.IOException;
 public class JWTFilter extends OncePerRequestFilter {
 
     private final JWTUtils jwtUtils;
-    private final CustomUserDetailService userDetailsService;
+    private final UserDetailsService userDetailsService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final UserTokenVersionService tokenVersionService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final JwtFilterMetrics metrics;
 
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final long start = System.nanoTime();
         final String authorizationHeader = request.getHeader("Authorization");
 
         String username = null;
@@ -36,26 +54,98 @@ public class JWTFilter extends OncePerRequestFilter {
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7); // Extracting the token from the header
-            // 1) Vérifier la blacklist
-            if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
+            long stageStart = metrics.stage(Stage.HEADER, start);
+            // 1) Vérifier la blacklist (l'empreinte sert aussi de clé au cache des tokens vérifiés)
+            TokenDigest digest = TokenDigest.of(jwt);
+            boolean blacklisted = tokenBlacklistService.isBlacklisted(digest);
+            stageStart = metrics.stage(Stage.BLACKLIST, stageStart);
+            if (blacklisted) {
                 // Token révoqué
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token has been revoked");
+                reject(response, start, Outcome.REVOKED, "Token has been revoked");
                 return;
             }
-            username = jwtUtils.extractUsernameFromToken(jwt);
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // 2) Parser et vérifier la signature une seule fois (ou la retrouver dans le cache)
+            VerifiedToken verifiedToken;
+            try {
+                verifiedToken = verifiedTokenCache.verify(jwt, digest);
+            } catch (ExpiredJwtException e) {
+                reject(response, start, Outcome.EXPIRED, "Invalid token");
+                return;
+            } catch (SecurityException e) {
+                reject(response, start, Outcome.INVALID_SIGNATURE, "Invalid token");
+                return;
+            } catch (JwtException | IllegalArgumentException e) {
+                reject(response, start, Outcome.MALFORMED, "Invalid token");
+                return;
+            }
+            stageStart = metrics.stage(Stage.VERIFY, stageStart);
+            username = verifiedToken.username();
+            // 3) "Logout everywhere" : tous les tokens émis avant le seuil de l'utilisateur sont refusés
+            boolean beforeWatermark = verifiedToken.issuedAt() < tokenWatermarkService.notBefore(username);
+            stageStart = metrics.stage(Stage.WATERMARK, stageStart);
+            if (beforeWatermark) {
+                reject(response, start, Outcome.REVOKED, "Token has been revoked");
+                return;
+            }
+            Outcome outcome;
+            if (username == null) {
+                // token bien signé mais sans sujet : la requête continue sans authentification
+                outcome = Outcome.INVALID;
+            } else if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                // authentification déjà en place : le token n'est pas appliqué
+                outcome = Outcome.ALREADY_AUTHENTICATED;
+            } else {
                 // je verifie si le token est valide et si il existe pas deja une authentification en cours
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                if (jwtUtils.validateToken(jwt, userDetails)) {
+                UserDetails userDetails;
+                if (jwtUtils.isStatelessPrincipal() && verifiedToken.hasRoles()) {
+                    // 4) Mode stateless : le principal est reconstruit depuis les claims, sans lecture en base
+                    if (!tokenVersionService.isCurrent(username, verifiedToken.tokenVersion())) {
+                        reject(response, start, Outcome.OUTDATED, "Token is outdated");
+                        return;
+                    }
+                    try {
+                        userDetails = principalFromClaims(verifiedToken);
+                    } catch (IllegalArgumentException e) {
+                        // rôle inconnu du registre Role
+                        reject(response, start, Outcome.MALFORMED, "Invalid token");
+                        return;
+                    }
+                } else {
+                    try {
+                        userDetails = userDetailsService.loadUserByUsername(username);
+                    } catch (UsernameNotFoundException e) {
+                        // token bien signé pour un compte supprimé depuis
+                        reject(response, start, Outcome.UNKNOWN_USER, "Invalid token");
+                        return;
+                    }
+                }
+                stageStart = metrics.stage(Stage.USER, stageStart);
+                if (jwtUtils.validateToken(verifiedToken, userDetails)) {
                     UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     // permet de stocker les details de l'authentification via la requete
                     usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-
+                    outcome = Outcome.AUTHENTICATED;
+                } else {
+                    // token refusé (sujet différent de l'utilisateur chargé, expiré) : la requête continue sans authentification
+                    outcome = Outcome.INVALID;
                 }
-
+                metrics.stage(Stage.CONTEXT, stageStart);
             }
+            metrics.outcome(outcome, start);
+        } else {
+            metrics.stage(Stage.HEADER, start);
+            metrics.outcome(Outcome.ANONYMOUS, start);
         }
         filterChain.doFilter(request, response);
     }
+
+    private void reject(HttpServletResponse response, long start, Outcome outcome, String message) throws IOException {
+        metrics.outcome(outcome, start);
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, message);
+    }
+
+    private static UserDetails principalFromClaims(VerifiedToken verifiedToken) {
+        return new UserPrincipal(verifiedToken.username(), "", Role.mask(verifiedToken.roles()));
+    }
 }
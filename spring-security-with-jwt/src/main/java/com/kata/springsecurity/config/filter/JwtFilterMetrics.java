@@ -0,0 +1,105 @@
+package com.kata.springsecurity.config.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques du {@link JWTFilter} : durée de chaque étape, durée totale (avec seuils de SLO)
+ * et nombre de requêtes par issue.
+ * <p>
+ * Les tags ne prennent que les valeurs des énumérations ci-dessous (jamais un username ni une URL).
+ * Tous les compteurs et timers sont créés une fois, au branchement des métriques : sur le chemin
+ * d'une requête, il ne reste que quelques System.nanoTime() et des incréments, sans recherche dans le registre.
+ */
+@Component
+public class JwtFilterMetrics implements MeterBinder {
+
+    public enum Stage { HEADER, BLACKLIST, VERIFY, WATERMARK, USER, CONTEXT }
+
+    /**
+     * INVALID : token vérifié mais non appliqué par validateToken (la requête continue sans authentification) ;
+     * ALREADY_AUTHENTICATED : un SecurityContext existait déjà, le token n'a pas été appliqué.
+     */
+    public enum Outcome { AUTHENTICATED, ANONYMOUS, REVOKED, EXPIRED, MALFORMED, INVALID_SIGNATURE, UNKNOWN_USER, OUTDATED, INVALID, ALREADY_AUTHENTICATED }
+
+    private final List<Duration> slos;
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    // renseignés quand les métriques sont branchées
+    private volatile Timer[] stageTimers;
+    private volatile Timer durationTimer;
+
+    /**
+     * @param slos seuils de latence (ex. 5ms,25ms,100ms) exposés comme buckets de auth.filter.duration, pour les alertes
+     */
+    public JwtFilterMetrics(@Value("${app.metrics.auth-filter.slo:5ms,25ms,100ms}") List<Duration> slos) {
+        this.slos = List.copyOf(slos);
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Enregistre la fin d'une étape commencée à {@code stageStart}.
+     *
+     * @return l'instant de fin, début de l'étape suivante
+     */
+    public long stage(Stage stage, long stageStart) {
+        long now = System.nanoTime();
+        Timer[] timers = stageTimers;
+        if (timers != null) {
+            timers[stage.ordinal()].record(now - stageStart, TimeUnit.NANOSECONDS);
+        }
+        return now;
+    }
+
+    /**
+     * Enregistre l'issue de la requête et la durée totale du filtre depuis {@code start}.
+     */
+    public void outcome(Outcome outcome, long start) {
+        outcomes[outcome.ordinal()].increment();
+        Timer timer = durationTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public long count(Outcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Timer[] timers = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()] = Timer.builder("auth.filter.stage")
+                    .description("Durée de chaque étape du filtre JWT")
+                    .tag("stage", tagValue(stage))
+                    .register(registry);
+        }
+        for (Outcome outcome : Outcome.values()) {
+            FunctionCounter.builder("auth.filter.outcome", outcomes[outcome.ordinal()], LongAdder::sum)
+                    .description("Requêtes vues par le filtre JWT, par issue")
+                    .tag("outcome", tagValue(outcome))
+                    .register(registry);
+        }
+        durationTimer = Timer.builder("auth.filter.duration")
+                .description("Durée totale du filtre JWT par requête")
+                .serviceLevelObjectives(slos.toArray(Duration[]::new))
+                .register(registry);
+        stageTimers = timers;
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
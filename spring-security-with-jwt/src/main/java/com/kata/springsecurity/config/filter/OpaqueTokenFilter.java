@@ -0,0 +1,81 @@
+package com.kata.springsecurity.config.filter;
+
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics.Outcome;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics.Stage;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Remplace {@link JWTFilter} en mode opaque (app.token.format=opaque) : le token est résolu dans
+ * {@link OpaqueTokenStore}, sans signature, sans blacklist ni lecture en base. Mêmes métriques que
+ * le filtre JWT (étapes HEADER, USER et CONTEXT seulement), pour comparer les deux modes.
+ */
+@AllArgsConstructor
+public class OpaqueTokenFilter extends OncePerRequestFilter {
+
+    private final OpaqueTokenStore sessionStore;
+    private final UserTokenVersionService tokenVersionService;
+    private final JwtFilterMetrics metrics;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        final long start = System.nanoTime();
+        final String authorizationHeader = request.getHeader("Authorization");
+
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            String token = authorizationHeader.substring(7);
+            long stageStart = metrics.stage(Stage.HEADER, start);
+            OpaqueTokenStore.Session session;
+            try {
+                session = sessionStore.resolve(token);
+            } catch (IllegalArgumentException e) {
+                // un JWT, ou n'importe quoi d'autre
+                reject(response, start, Outcome.MALFORMED);
+                return;
+            }
+            if (session == null) {
+                // inconnue, révoquée ou expirée
+                reject(response, start, Outcome.EXPIRED);
+                return;
+            }
+            // rôles changés depuis l'ouverture de la session
+            if (!tokenVersionService.isCurrent(session.username(), session.tokenVersion())) {
+                sessionStore.revoke(token);
+                reject(response, start, Outcome.OUTDATED);
+                return;
+            }
+            stageStart = metrics.stage(Stage.USER, stageStart);
+            Outcome outcome = Outcome.ALREADY_AUTHENTICATED;
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserPrincipal principal = new UserPrincipal(session.username(), "", session.roleMask());
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                outcome = Outcome.AUTHENTICATED;
+            }
+            metrics.stage(Stage.CONTEXT, stageStart);
+            metrics.outcome(outcome, start);
+        } else {
+            metrics.stage(Stage.HEADER, start);
+            metrics.outcome(Outcome.ANONYMOUS, start);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, long start, Outcome outcome) throws IOException {
+        metrics.outcome(outcome, start);
+        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid token");
+    }
+}
@@ -0,0 +1,48 @@
+package com.kata.springsecurity.config.propagation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Propagation dans la JVM, pour les tests : plusieurs "noeuds" partagent la même liste de lots
+ * (voir {@link #connect()}). Les lots ne sont jamais purgés.
+ */
+@Component
+@ConditionalOnProperty(name = "app.revocation-propagation.type", havingValue = "in-memory")
+public class InMemoryRevocationPropagator implements RevocationPropagator {
+
+    private final List<RevocationBatch> batches;
+    private int cursor;
+
+    public InMemoryRevocationPropagator() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private InMemoryRevocationPropagator(List<RevocationBatch> batches) {
+        this.batches = batches;
+    }
+
+    /**
+     * @return un propagateur pour un autre noeud, branché sur les mêmes lots
+     */
+    public InMemoryRevocationPropagator connect() {
+        return new InMemoryRevocationPropagator(batches);
+    }
+
+    @Override
+    public void publish(RevocationBatch batch) {
+        batches.add(batch);
+    }
+
+    @Override
+    public synchronized void poll(Consumer<RevocationBatch> consumer) {
+        int size = batches.size();
+        for (; cursor < size; cursor++) {
+            consumer.accept(batches.get(cursor));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kata.springsecurity.config.propagation;
+
+import com.kata.springsecurity.entity.PropagatedRevocationBatch;
+import com.kata.springsecurity.repository.PropagatedRevocationBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Propagation par la base de données existante : chaque lot est une ligne de la table
+ * propagated_revocation_batch, relue par les autres noeuds par polling incrémental.
+ * <p>
+ * Le polling repart de la date du précédent moins une fenêtre de recouvrement : une ligne
+ * commitée en retard (ou horodatée par un noeud dont l'horloge retarde) n'est pas manquée
+ * tant que le retard reste sous cette fenêtre. Les lots déjà vus dans la fenêtre sont ignorés.
+ * Au démarrage, tous les lots dont une révocation n'a pas encore expiré sont rattrapés.
+ */
+@Component
+@ConditionalOnProperty(name = "app.revocation-propagation.type", havingValue = "jpa")
+@Slf4j
+public class JpaRevocationPropagator implements RevocationPropagator {
+
+    private final PropagatedRevocationBatchRepository repository;
+    private final long overlapMillis;
+
+    // id -> createdAt des lots déjà rendus, limité à la fenêtre de recouvrement
+    private final Map<Long, Long> seen = new HashMap<>();
+    // -1 : rattrapage complet au prochain poll
+    private long lastPoll = -1L;
+    // pas de synchronized autour d'une requête : il épinglerait un thread virtuel
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    public JpaRevocationPropagator(PropagatedRevocationBatchRepository repository,
+                                   @Value("${app.revocation-propagation.overlap:10s}") Duration overlap) {
+        this.repository = repository;
+        this.overlapMillis = overlap.toMillis();
+    }
+
+    @Override
+    public void publish(RevocationBatch batch) {
+        repository.save(PropagatedRevocationBatch.builder()
+                .nodeId(batch.nodeId())
+                .createdAt(batch.createdAt())
+                .maxExpiresAt(batch.maxExpiresAt())
+                .payload(batch.payload())
+                .build());
+    }
+
+    @Override
+    public void poll(Consumer<RevocationBatch> consumer) {
+        pollLock.lock();
+        try {
+            pollLocked(consumer);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private void pollLocked(Consumer<RevocationBatch> consumer) {
+        long now = System.currentTimeMillis();
+        long since = lastPoll - overlapMillis;
+        List<PropagatedRevocationBatch> rows = lastPoll < 0
+                ? repository.findByMaxExpiresAtGreaterThanOrderById(now)
+                : repository.findByCreatedAtGreaterThanEqualOrderById(since);
+        for (PropagatedRevocationBatch row : rows) {
+            if (!seen.containsKey(row.getId())) {
+                // marqué vu seulement une fois appliqué : un lot en échec est rendu de nouveau au prochain poll
+                consumer.accept(new RevocationBatch(row.getNodeId(), row.getCreatedAt(), row.getMaxExpiresAt(), row.getPayload()));
+                seen.put(row.getId(), row.getCreatedAt());
+            }
+        }
+        // avancé seulement si tous les lots ont été appliqués : sinon (exception) le prochain poll repart du même point
+        lastPoll = now;
+        seen.values().removeIf(createdAt -> createdAt < now - overlapMillis);
+    }
+
+    /**
+     * Supprime les lots dont toutes les révocations ont expiré.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void purgeExpiredBatches() {
+        int deleted = repository.deleteExpired(System.currentTimeMillis());
+        if (deleted > 0) {
+            log.debug("Purged {} expired revocation batches", deleted);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kata.springsecurity.config.propagation;
+
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.config.TokenRevokedEvent;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Lot de révocations échangé entre les noeuds, sous forme compacte.
+ * <p>
+ * Format du payload : nombre d'entrées (varint) puis, triées par expiration, pour chaque entrée
+ * l'écart d'expiration avec la précédente (varint) et l'empreinte (2 x 8 octets). Les empreintes
+ * sont aléatoires et incompressibles ; seules les expirations, très proches dans un même lot,
+ * se compressent (1 à 3 octets au lieu de 8).
+ *
+ * @param nodeId        noeud qui a émis le lot
+ * @param createdAt     epoch (en ms) d'émission du lot
+ * @param maxExpiresAt  expiration la plus tardive du lot (le lot peut être purgé après)
+ * @param payload       révocations encodées
+ */
+public record RevocationBatch(String nodeId, long createdAt, long maxExpiresAt, byte[] payload) {
+
+    // varint (10 octets au pire) + empreinte
+    static final int MAX_ENTRY_SIZE = 10 + 16;
+
+    public static RevocationBatch of(String nodeId, List<TokenRevokedEvent> revocations) {
+        List<TokenRevokedEvent> sorted = revocations.stream()
+                .sorted(Comparator.comparingLong(TokenRevokedEvent::expiresAt))
+                .toList();
+        ByteBuffer buffer = ByteBuffer.allocate(5 + sorted.size() * MAX_ENTRY_SIZE);
+        putVarLong(buffer, sorted.size());
+        long previous = 0L;
+        for (TokenRevokedEvent revocation : sorted) {
+            putVarLong(buffer, revocation.expiresAt() - previous);
+            buffer.putLong(revocation.digest().hi());
+            buffer.putLong(revocation.digest().lo());
+            previous = revocation.expiresAt();
+        }
+        byte[] payload = new byte[buffer.position()];
+        buffer.flip().get(payload);
+        return new RevocationBatch(nodeId, System.currentTimeMillis(), previous, payload);
+    }
+
+    /**
+     * Décode le lot et passe chaque révocation (empreinte, expiration) au consommateur.
+     */
+    public void forEach(ObjLongConsumer<TokenDigest> consumer) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long count = getVarLong(buffer);
+        long expiresAt = 0L;
+        for (long i = 0; i < count; i++) {
+            expiresAt += getVarLong(buffer);
+            consumer.accept(new TokenDigest(buffer.getLong(), buffer.getLong()), expiresAt);
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0L;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
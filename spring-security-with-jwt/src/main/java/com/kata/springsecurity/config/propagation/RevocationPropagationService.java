@@ -0,0 +1,130 @@
+package com.kata.springsecurity.config.propagation;
+
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.config.TokenRevokedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Propage les révocations de ce noeud aux autres noeuds et applique les leurs
+ * (app.revocation-propagation.type = jpa | in-memory ; absent = désactivé).
+ * <p>
+ * Les logouts sont regroupés en lots envoyés toutes les flush-interval ms, les lots des autres
+ * noeuds sont relus toutes les poll-interval ms : le retard de propagation est borné par la somme
+ * des deux (plus la latence du transport). Un lot qui n'a pas pu être envoyé, ou appliqué, est réessayé au tour suivant.
+ */
+@Service
+@ConditionalOnProperty(name = "app.revocation-propagation.type")
+@Slf4j
+public class RevocationPropagationService {
+
+    // ~50 Ko par lot au pire
+    static final int MAX_BATCH_SIZE = 2000;
+
+    private final TokenBlacklistService tokenBlacklistService;
+    private final RevocationPropagator propagator;
+    // aléatoire par défaut : au redémarrage, les lots émis avant l'arrêt sont aussi rattrapés
+    private final String nodeId;
+    private final Queue<TokenRevokedEvent> pending = new ConcurrentLinkedQueue<>();
+    // pas de synchronized autour des appels au transport : il épinglerait un thread virtuel
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    public RevocationPropagationService(TokenBlacklistService tokenBlacklistService,
+                                        RevocationPropagator propagator,
+                                        @Value("${app.revocation-propagation.node-id:${random.uuid}}") String nodeId) {
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.propagator = propagator;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Rattrape les révocations faites sur les autres noeuds avant le démarrage de celui-ci.
+     */
+    @PostConstruct
+    public void catchUp() {
+        poll();
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        // les révocations reçues ou rechargées ne sont pas repropagées
+        if (event.origin() == TokenRevokedEvent.Origin.LOCAL) {
+            pending.add(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.revocation-propagation.flush-interval:200}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLocked() {
+        List<TokenRevokedEvent> batch = new ArrayList<>();
+        TokenRevokedEvent event;
+        while (true) {
+            while (batch.size() < MAX_BATCH_SIZE && (event = pending.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                propagator.publish(RevocationBatch.of(nodeId, batch));
+            } catch (RuntimeException e) {
+                // l'ordre des révocations n'a pas d'importance : on les remet simplement en file
+                log.warn("Unable to propagate {} revocations, will retry", batch.size(), e);
+                pending.addAll(batch);
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.revocation-propagation.poll-interval:1000}")
+    public void poll() {
+        pollLock.lock();
+        try {
+            propagator.poll(batch -> {
+                if (!nodeId.equals(batch.nodeId())) {
+                    batch.forEach(this::apply);
+                    log.debug("Applied revocation batch from node {}, {} ms after emission",
+                            batch.nodeId(), System.currentTimeMillis() - batch.createdAt());
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Unable to fetch or apply revocations from other nodes, will retry", e);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // blacklist pleine : le lot n'est pas marqué comme appliqué, il est réessayé au prochain poll
+    // (les révocations déjà appliquées du lot le sont de nouveau, sans effet)
+    private void apply(TokenDigest digest, long expiresAt) {
+        if (!tokenBlacklistService.applyRemote(digest, expiresAt)) {
+            throw new IllegalStateException("Revocation received from another node was refused: blacklist is full");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.kata.springsecurity.config.propagation;
+
+import java.util.function.Consumer;
+
+/**
+ * Transport des révocations entre les noeuds du cluster (app.revocation-propagation.type).
+ * Le regroupement en lots, l'encodage et l'application des révocations reçues sont faits par
+ * {@link RevocationPropagationService} ; une implémentation ne fait que stocker et relire des lots.
+ */
+public interface RevocationPropagator {
+
+    /**
+     * Rend le lot visible pour tous les noeuds (y compris celui qui l'émet).
+     */
+    void publish(RevocationBatch batch);
+
+    /**
+     * Passe au consommateur les lots publiés depuis le dernier appel. Le premier appel rattrape
+     * tous les lots encore utiles (noeud qui démarre ou redémarre).
+     * Un même lot peut être rendu plusieurs fois : son application est idempotente.
+     */
+    void poll(Consumer<RevocationBatch> consumer);
+}
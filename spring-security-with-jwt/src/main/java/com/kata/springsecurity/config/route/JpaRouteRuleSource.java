@@ -0,0 +1,34 @@
+package com.kata.springsecurity.config.route;
+
+import com.kata.springsecurity.repository.HttpRouteRuleRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Règles lues dans la table http_route_rule, dans l'ordre des ids. Une modification de la table
+ * est prise en compte au rafraîchissement suivant, sur chaque noeud.
+ */
+@Component
+@ConditionalOnProperty(name = "app.route-rules.source", havingValue = "database")
+public class JpaRouteRuleSource implements RouteRuleSource {
+
+    private final HttpRouteRuleRepository repository;
+
+    public JpaRouteRuleSource(HttpRouteRuleRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public List<RouteRule> load() {
+        return repository.findAllByOrderById().stream()
+                .map(rule -> new RouteRule(rule.getHttpMethod(), rule.getPattern(), rule.getAccess()))
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        return "table http_route_rule";
+    }
+}
@@ -0,0 +1,56 @@
+package com.kata.springsecurity.config.route;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Règles lues dans un fichier texte (app.route-rules.location, route-rules.conf embarqué par défaut) :
+ * une règle "[MÉTHODE] chemin accès" par ligne ; lignes vides et commentaires (#) ignorés.
+ */
+@Component
+@ConditionalOnProperty(name = "app.route-rules.source", havingValue = "file", matchIfMissing = true)
+public class ResourceRouteRuleSource implements RouteRuleSource {
+
+    private final Resource location;
+
+    public ResourceRouteRuleSource(@Value("${app.route-rules.location:classpath:route-rules.conf}") Resource location) {
+        this.location = location;
+    }
+
+    @Override
+    public List<RouteRule> load() throws IOException {
+        List<RouteRule> rules = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String rule = (comment >= 0 ? line.substring(0, comment) : line).strip();
+                if (rule.isEmpty()) {
+                    continue;
+                }
+                try {
+                    rules.add(RouteRule.parse(rule));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(location.getDescription() + ", line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return rules;
+    }
+
+    @Override
+    public String toString() {
+        return location.getDescription();
+    }
+}
@@ -0,0 +1,118 @@
+package com.kata.springsecurity.config.route;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationResult;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Contrôle d'accès de toutes les requêtes par une {@link RouteTable} compilée depuis les règles de
+ * {@link RouteRuleSource} (fichier route-rules.conf ou table http_route_rule).
+ * <p>
+ * Les règles sont relues toutes les app.route-rules.refresh-interval ms ; une nouvelle table est
+ * compilée à part puis publiée d'un bloc : une requête voit l'ancienne ou la nouvelle table, jamais
+ * un mélange. Des règles invalides empêchent le démarrage, et sont ignorées à chaud (les règles en place restent).
+ */
+@Component
+@Slf4j
+public class RouteAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private final RouteRuleSource source;
+    private volatile RouteTable table;
+    // pas de synchronized autour de la lecture des règles : il épinglerait un thread virtuel
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    public RouteAuthorizationManager(RouteRuleSource source) {
+        this.source = source;
+        reload();
+    }
+
+    /**
+     * Règles fixes (tests, benchmarks).
+     */
+    public static RouteAuthorizationManager of(List<RouteRule> rules) {
+        return new RouteAuthorizationManager(() -> rules);
+    }
+
+    @Override
+    public AuthorizationResult authorize(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        HttpServletRequest request = context.getRequest();
+        return table.find(request.getMethod(), path(request)).authorize(authentication, context);
+    }
+
+    /**
+     * @deprecated Spring Security appelle {@link #authorize} ; gardée parce que l'interface l'impose encore
+     */
+    @Deprecated
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        return new AuthorizationDecision(authorize(authentication, context).isGranted());
+    }
+
+    /**
+     * @return les règles en vigueur, dans leur ordre de déclaration
+     */
+    public List<RouteRule> rules() {
+        return table.rules();
+    }
+
+    /**
+     * Relit les règles et ne remplace la table que si elles ont changé.
+     */
+    @Scheduled(fixedDelayString = "${app.route-rules.refresh-interval:10000}")
+    public void reloadIfChanged() {
+        reloadLock.lock();
+        try {
+            List<RouteRule> rules = source.load();
+            if (!rules.equals(table.rules())) {
+                install(rules);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to reload route rules from {}, keeping the current rules", source, e);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Relit les règles et remplace la table.
+     *
+     * @throws IllegalArgumentException si une règle est invalide (la table en place reste)
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            install(source.load());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read route rules from " + source, e);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void install(List<RouteRule> rules) {
+        table = RouteTable.compile(rules);
+        if (rules.isEmpty()) {
+            log.warn("No route rules in {}: every request must be authenticated", source);
+        } else {
+            log.info("Loaded {} route rules from {}", rules.size(), source);
+        }
+    }
+
+    // le chemin comparé par les requestMatchers : dans l'application, sans le contexte
+    private static String path(HttpServletRequest request) {
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? request.getServletPath() : request.getServletPath() + pathInfo;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kata.springsecurity.config.route;
+
+import java.util.Locale;
+
+/**
+ * Règle d'accès d'une route, telle qu'écrite dans le fichier de règles ou la table http_route_rule.
+ *
+ * @param method  méthode HTTP, ou null pour toutes
+ * @param pattern chemin : segments littéraux, "*" ou "{nom}" pour un segment, "**" en dernier pour la suite
+ * @param access  permitAll, denyAll, authenticated, ou des rôles séparés par des virgules (l'un d'eux suffit)
+ */
+public record RouteRule(String method, String pattern, String access) {
+
+    public RouteRule {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+        }
+        if (access == null || access.isBlank()) {
+            throw new IllegalArgumentException("Missing access for route " + pattern);
+        }
+        method = method == null || method.isBlank() || method.equals("*") ? null : method.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Lit une ligne "[MÉTHODE] chemin accès", par exemple "GET /api/orders/* USER,ADMIN".
+     *
+     * @throws IllegalArgumentException si la ligne n'a ni deux ni trois champs
+     */
+    public static RouteRule parse(String line) {
+        String[] fields = line.trim().split("\\s+");
+        return switch (fields.length) {
+            case 2 -> new RouteRule(null, fields[0], fields[1]);
+            case 3 -> new RouteRule(fields[0], fields[1], fields[2]);
+            default -> throw new IllegalArgumentException("Expected '[METHOD] pattern access': " + line);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return (method != null ? method + " " : "") + pattern + " " + access;
+    }
+}
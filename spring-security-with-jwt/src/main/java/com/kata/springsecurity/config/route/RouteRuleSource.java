@@ -0,0 +1,17 @@
+package com.kata.springsecurity.config.route;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Origine des règles d'accès (app.route-rules.source) : relue à chaque rafraîchissement par
+ * {@link RouteAuthorizationManager}, qui ne recompile que si la liste a changé.
+ */
+public interface RouteRuleSource {
+
+    /**
+     * @return les règles dans leur ordre de déclaration
+     * @throws IllegalArgumentException si une règle est mal écrite
+     */
+    List<RouteRule> load() throws IOException;
+}
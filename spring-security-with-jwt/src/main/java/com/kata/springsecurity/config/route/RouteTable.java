@@ -0,0 +1,225 @@
+package com.kata.springsecurity.config.route;
+
+import com.kata.springsecurity.config.RoleAuthorizationManager;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Règles d'accès compilées en arbre de chemins : un noeud par segment, et sur chaque noeud la
+ * décision déjà résolue pour chaque méthode HTTP. Trouver la règle d'une requête coûte un accès
+ * de map par segment du chemin, quel que soit le nombre de règles, là où la chaîne de
+ * requestMatchers les teste une à une dans l'ordre.
+ * <p>
+ * La règle la plus précise l'emporte, sans dépendre de l'ordre de déclaration : segment littéral,
+ * puis "*", puis "**" ; à chemin égal, une règle sur une méthode avant une règle toutes méthodes ;
+ * pour deux règles identiques, la première déclarée. Une requête sans règle doit être authentifiée
+ * (l'équivalent de anyRequest().authenticated()).
+ * <p>
+ * Immuable une fois compilée : {@link RouteAuthorizationManager} la remplace d'un bloc.
+ */
+final class RouteTable {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    // comme permitAll() : l'authentification n'est même pas demandée
+    private static final AuthorizationManager<RequestAuthorizationContext> PERMIT_ALL = (authentication, context) -> GRANTED;
+    private static final AuthorizationManager<RequestAuthorizationContext> DENY_ALL = (authentication, context) -> DENIED;
+    private static final AuthorizationManager<RequestAuthorizationContext> AUTHENTICATED = AuthenticatedAuthorizationManager.authenticated();
+
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+    // autres méthodes : seules les règles toutes méthodes s'appliquent
+    private static final int OTHER = METHODS.length;
+
+    private final Node root;
+    private final List<RouteRule> rules;
+
+    private RouteTable(Node root, List<RouteRule> rules) {
+        this.root = root;
+        this.rules = rules;
+    }
+
+    /**
+     * @throws IllegalArgumentException si une règle a un chemin, une méthode ou un accès invalide
+     */
+    static RouteTable compile(List<RouteRule> rules) {
+        Node root = new Node();
+        // un seul gestionnaire par accès distinct ("ADMIN" sur 500 routes = une instance)
+        Map<String, AuthorizationManager<RequestAuthorizationContext>> managers = new HashMap<>();
+        for (RouteRule rule : rules) {
+            if (rule.method() != null && methodIndex(rule.method()) == OTHER) {
+                throw new IllegalArgumentException("Unsupported HTTP method in route rule: " + rule);
+            }
+            AuthorizationManager<RequestAuthorizationContext> manager = managers.computeIfAbsent(rule.access(), RouteTable::access);
+            root.add(rule, segments(rule.pattern()), 0, manager);
+        }
+        root.resolve();
+        return new RouteTable(root, List.copyOf(rules));
+    }
+
+    List<RouteRule> rules() {
+        return rules;
+    }
+
+    /**
+     * @param path chemin de la requête dans l'application (sans le contexte)
+     */
+    AuthorizationManager<RequestAuthorizationContext> find(String method, String path) {
+        AuthorizationManager<RequestAuthorizationContext> manager = find(root, path, 0, methodIndex(method));
+        return manager != null ? manager : AUTHENTICATED;
+    }
+
+    // null si aucune règle sous ce noeud : l'appelant essaie alors l'alternative moins précise
+    private static AuthorizationManager<RequestAuthorizationContext> find(Node node, String path, int from, int method) {
+        // saute le '/' de tête (et les doubles barres, comme le '/' final)
+        while (from < path.length() && path.charAt(from) == '/') {
+            from++;
+        }
+        AuthorizationManager<RequestAuthorizationContext> found;
+        if (from == path.length()) {
+            found = decision(node.exact, method);
+            return found != null ? found : decision(node.rest, method);
+        }
+        int end = path.indexOf('/', from);
+        if (end < 0) {
+            end = path.length();
+        }
+        if (!node.literals.isEmpty()) {
+            Node literal = node.literals.get(path.substring(from, end));
+            if (literal != null && (found = find(literal, path, end, method)) != null) {
+                return found;
+            }
+        }
+        if (node.wildcard != null && (found = find(node.wildcard, path, end, method)) != null) {
+            return found;
+        }
+        return decision(node.rest, method);
+    }
+
+    private static AuthorizationManager<RequestAuthorizationContext> decision(AuthorizationManager<RequestAuthorizationContext>[] decisions, int method) {
+        return decisions != null ? decisions[method] : null;
+    }
+
+    static int methodIndex(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "HEAD" -> 1;
+            case "POST" -> 2;
+            case "PUT" -> 3;
+            case "PATCH" -> 4;
+            case "DELETE" -> 5;
+            case "OPTIONS" -> 6;
+            case "TRACE" -> 7;
+            default -> OTHER;
+        };
+    }
+
+    private static AuthorizationManager<RequestAuthorizationContext> access(String access) {
+        return switch (access) {
+            case "permitAll" -> PERMIT_ALL;
+            case "denyAll" -> DENY_ALL;
+            case "authenticated" -> AUTHENTICATED;
+            // rôles inconnus refusés par Role.mask
+            default -> RoleAuthorizationManager.hasAnyRole(List.of(access.split(",")));
+        };
+    }
+
+    private static List<String> segments(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (!segments.isEmpty() && isRest(segments.get(segments.size() - 1))) {
+                throw new IllegalArgumentException("'**' must be the last segment of a route pattern: " + pattern);
+            }
+            if (!isRest(segment) && !isWildcard(segment) && (segment.indexOf('*') >= 0 || segment.indexOf('{') >= 0 || segment.indexOf('?') >= 0)) {
+                throw new IllegalArgumentException("Unsupported segment '" + segment + "' in route pattern: " + pattern);
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    // "**" ou "{*reste}" : zéro, un ou plusieurs segments
+    private static boolean isRest(String segment) {
+        return segment.equals("**") || segment.startsWith("{*") && segment.endsWith("}");
+    }
+
+    // "*" ou "{variable}" : exactement un segment
+    private static boolean isWildcard(String segment) {
+        return segment.equals("*") || segment.startsWith("{") && segment.endsWith("}") && segment.indexOf('*') < 0;
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node wildcard;
+        // règles déclarées, par méthode ("" = toutes), le temps de la compilation
+        private Map<String, AuthorizationManager<RequestAuthorizationContext>> exactRules;
+        private Map<String, AuthorizationManager<RequestAuthorizationContext>> restRules;
+        // décisions résolues par méthode (index de methodIndex) : chemin qui s'arrête ici, ou "**" posé ici
+        private AuthorizationManager<RequestAuthorizationContext>[] exact;
+        private AuthorizationManager<RequestAuthorizationContext>[] rest;
+
+        private void add(RouteRule rule, List<String> segments, int index, AuthorizationManager<RequestAuthorizationContext> manager) {
+            String method = rule.method() != null ? rule.method() : "";
+            if (index == segments.size()) {
+                exactRules = put(exactRules, method, manager);
+                return;
+            }
+            String segment = segments.get(index);
+            if (isRest(segment)) {
+                restRules = put(restRules, method, manager);
+            } else if (isWildcard(segment)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                wildcard.add(rule, segments, index + 1, manager);
+            } else {
+                literals.computeIfAbsent(segment, key -> new Node()).add(rule, segments, index + 1, manager);
+            }
+        }
+
+        private static Map<String, AuthorizationManager<RequestAuthorizationContext>> put(Map<String, AuthorizationManager<RequestAuthorizationContext>> rules,
+                                                                                        String method, AuthorizationManager<RequestAuthorizationContext> manager) {
+            Map<String, AuthorizationManager<RequestAuthorizationContext>> result = rules != null ? rules : new LinkedHashMap<>();
+            // même méthode et même chemin : la première règle déclarée l'emporte, comme dans la chaîne de requestMatchers
+            result.putIfAbsent(method, manager);
+            return result;
+        }
+
+        private void resolve() {
+            exact = resolve(exactRules);
+            rest = resolve(restRules);
+            exactRules = null;
+            restRules = null;
+            literals.values().forEach(Node::resolve);
+            if (wildcard != null) {
+                wildcard.resolve();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static AuthorizationManager<RequestAuthorizationContext>[] resolve(Map<String, AuthorizationManager<RequestAuthorizationContext>> rules) {
+            if (rules == null) {
+                return null;
+            }
+            AuthorizationManager<RequestAuthorizationContext> anyMethod = rules.get("");
+            AuthorizationManager<RequestAuthorizationContext>[] decisions = new AuthorizationManager[OTHER + 1];
+            for (int i = 0; i < METHODS.length; i++) {
+                decisions[i] = rules.getOrDefault(METHODS[i], anyMethod);
+            }
+            decisions[OTHER] = anyMethod;
+            return decisions;
+        }
+    }
+}
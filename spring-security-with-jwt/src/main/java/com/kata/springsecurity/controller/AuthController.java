@@ -2,27 +2,45 @@ package com.kata.springsecurity.controller;
 
 
 import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.JwtKeyStore;
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.PasswordHashingExecutor;
+import com.kata.springsecurity.config.Role;
 import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.VerifiedToken;
 import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.modele.RefreshTokenRequest;
 import com.kata.springsecurity.modele.UserPresentation;
 import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.service.CachingUserDetailService;
+import com.kata.springsecurity.service.PasswordLoginService;
+import com.kata.springsecurity.service.RefreshTokenService;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -30,57 +48,187 @@ import java.util.Map;
 @Slf4j
 public class AuthController {
 
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final JWTUtils jwtUtils;
     private final CustomUserRepository userRepository;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordLoginService passwordLoginService;
     private final TokenBlacklistService tokenBlacklistService;
+    private final UserTokenVersionService tokenVersionService;
+    private final CachingUserDetailService userDetailsService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final JwtKeyStore jwtKeyStore;
+    private final RefreshTokenService refreshTokenService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final OpaqueTokenStore opaqueTokenStore;
 
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody UserPresentation user) {
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
-            return ResponseEntity.badRequest().body("Username is already taken");
-        }
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody UserPresentation user) {
+        // BCrypt sur l'exécuteur dédié : le thread Tomcat est libéré pendant le hachage ; l'INSERT se fait ensuite, hors de ses threads
+        return passwordHashingExecutor.<String, ResponseEntity<?>>submit(() -> passwordEncoder.encode(user.getPassword()),
+                        encodedPassword -> saveUser(user, encodedPassword))
+                .exceptionally(AuthController::hashingFailure);
+    }
+
+
+    private ResponseEntity<?> saveUser(UserPresentation user, String encodedPassword) {
         CustomUser customUser = CustomUser.builder()
                 .username(user.getUsername())
-                .password(bCryptPasswordEncoder.encode(user.getPassword()))
-                .roles(user.isAdmin() ? "ADMIN" : "USER")
+                .password(encodedPassword)
+                .roleMask((user.isAdmin() ? Role.ADMIN : Role.USER).bit())
                 .build();
-        CustomUser customUserSaved = userRepository.save(customUser);
+        CustomUser customUserSaved;
+        try {
+            // un seul INSERT : l'index unique sur username tranche entre deux inscriptions concurrentes
+            customUserSaved = userRepository.saveAndFlush(customUser);
+        } catch (DataIntegrityViolationException e) {
+            if (!CustomUserRepository.isUsernameTaken(e)) {
+                throw e;
+            }
+            return ResponseEntity.badRequest().body("Username is already taken");
+        }
+        // le username a pu être mis en cache comme inconnu
+        userDetailsService.evict(customUserSaved.getUsername());
         return ResponseEntity.ok(customUserSaved);
     }
 
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody UserPresentation user) {
-        try {
-            Authentication authenticate = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()));
-            if (authenticate.isAuthenticated()) {
-                Map<String, Object> authData = new HashMap<>();
-                authData.put("username", user.getUsername());
-                authData.put("token", jwtUtils.generateToken(user.getUsername()));
-                authData.put("type", "Bearer");
-                return ResponseEntity.ok(authData);
-            }
-            return ResponseEntity.ok(jwtUtils.generateToken(user.getUsername()));
-        } catch (BadCredentialsException e) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody UserPresentation user) {
+        // seul BCrypt passe par l'exécuteur de hachage ; les tokens sont émis sur le thread qui reprend la suite
+        return passwordLoginService.authenticate(user.getUsername(), user.getPassword())
+                .thenApply(this::loginResponse)
+                .exceptionally(AuthController::loginFailure);
+    }
+
+
+    private ResponseEntity<?> loginResponse(UserDetails userDetails) {
+        Optional<String> refreshToken = refreshTokenService.issue(userDetails.getUsername());
+        if (refreshToken.isEmpty()) {
+            return sessionTableFull();
+        }
+        String token = generateToken(userDetails);
+        if (token == null) {
+            refreshTokenService.revoke(refreshToken.get());
+            return sessionTableFull();
+        }
+        Map<String, Object> authData = new HashMap<>();
+        authData.put("username", userDetails.getUsername());
+        authData.put("token", token);
+        authData.put("type", "Bearer");
+        authData.put("refreshToken", refreshToken.get());
+        return ResponseEntity.ok(authData);
+    }
+
+
+    private static ResponseEntity<?> loginFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof BadCredentialsException e) {
             log.error("Invalid credentials", e);
             return ResponseEntity.badRequest().body("Invalid credentials");
         }
+        return hashingFailure(error);
+    }
+
+
+    /**
+     * File de hachage pleine : refus immédiat, le client peut réessayer un peu plus tard.
+     */
+    private static ResponseEntity<?> hashingFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many authentication requests, retry later");
+        }
+        throw error instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+    }
+
+
+    /**
+     * @return un JWT, ou en mode opaque l'identifiant d'une nouvelle session (null si la table de sessions est pleine)
+     */
+    private String generateToken(UserDetails userDetails) {
+        long tokenVersion = tokenVersionService.currentVersion(userDetails.getUsername());
+        if (opaqueTokenStore.isEnabled()) {
+            return opaqueTokenStore.issue(userDetails, tokenVersion).orElse(null);
+        }
+        return jwtUtils.generateToken(userDetails, tokenVersion);
+    }
+
+
+    private static ResponseEntity<?> sessionTableFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many open sessions, retry later");
+    }
+
+
+    /**
+     * Renouvelle l'access token sans repasser par le mot de passe (ni BCrypt) :
+     * le refresh token présenté est consommé et remplacé par un nouveau.
+     * Si la table de sessions opaques est pleine, la réponse 503 porte quand même le nouveau refresh token.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
+        if (request.getRefreshToken() == null) {
+            return ResponseEntity.badRequest().body("No refresh token found in request");
+        }
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        UserDetails userDetails;
+        try {
+            // servi par le cache des UserDetails
+            userDetails = userDetailsService.loadUserByUsername(rotation.get().username());
+        } catch (UsernameNotFoundException e) {
+            refreshTokenService.revoke(rotation.get().refreshToken());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        String token = generateToken(userDetails);
+        if (token == null) {
+            // la rotation est déjà faite : sans le nouveau refresh token, le client réessaierait avec l'ancien,
+            // pris pour un rejeu, et perdrait toute sa famille
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Too many open sessions, retry later",
+                            "refreshToken", rotation.get().refreshToken()));
+        }
+        Map<String, Object> authData = new HashMap<>();
+        authData.put("username", userDetails.getUsername());
+        authData.put("token", token);
+        authData.put("type", "Bearer");
+        authData.put("refreshToken", rotation.get().refreshToken());
+        return ResponseEntity.ok(authData);
     }
 
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletRequest request) {
+    public ResponseEntity<?> logout(HttpServletRequest request, @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            Date expirationDate = jwtUtils.extractExpiration(token);
-            long expiryTimestamp = expirationDate.getTime();
+            if (opaqueTokenStore.isEnabled()) {
+                // mode opaque : révoquer, c'est fermer la session (pas de blacklist)
+                if (!opaqueTokenStore.revoke(token)) {
+                    return ResponseEntity.badRequest().body("Invalid token");
+                }
+                revokeRefreshToken(refreshTokenRequest);
+                return ResponseEntity.ok("Token revoked successfully");
+            }
+            VerifiedToken verifiedToken;
+            try {
+                verifiedToken = jwtUtils.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid token");
+            }
 
+            revokeRefreshToken(refreshTokenRequest);
             // On ajoute le token à la blacklist
-            tokenBlacklistService.blacklistToken(token, expiryTimestamp);
+            if (!tokenBlacklistService.blacklistToken(token, verifiedToken.expiresAt())) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Token revocation is temporarily unavailable");
+            }
             return ResponseEntity.ok("Token revoked successfully");
         } else {
             return ResponseEntity.badRequest().body("No Bearer token found in request");
@@ -88,4 +236,53 @@ public class AuthController {
     }
 
 
+    // le refresh token éventuel ne doit plus permettre d'obtenir un nouvel access token
+    private void revokeRefreshToken(RefreshTokenRequest refreshTokenRequest) {
+        if (refreshTokenRequest != null && refreshTokenRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(refreshTokenRequest.getRefreshToken());
+        }
+    }
+
+
+    /**
+     * Révoque tous les tokens de l'utilisateur du token présenté (tous appareils confondus).
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body("No Bearer token found in request");
+        }
+        String username;
+        try {
+            if (opaqueTokenStore.isEnabled()) {
+                OpaqueTokenStore.Session session = opaqueTokenStore.resolve(authHeader.substring(7));
+                if (session == null) {
+                    return ResponseEntity.badRequest().body("Invalid token");
+                }
+                username = session.username();
+            } else {
+                username = jwtUtils.verify(authHeader.substring(7)).username();
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid token");
+        }
+        // le seuil ne vit que le temps d'un access token : les refresh tokens sont révoqués directement
+        if (tokenWatermarkService.revokeAllTokens(username).isEmpty()) {
+            return ResponseEntity.badRequest().body("Invalid token");
+        }
+        refreshTokenService.revokeAll(username);
+        // sessions opaques de l'utilisateur (aucune en mode JWT)
+        opaqueTokenStore.revokeAll(username);
+        return ResponseEntity.ok("All tokens revoked successfully");
+    }
+
+
+    /**
+     * Clés publiques de vérification (JWK Set) : vide en HS256, le secret n'est jamais publié.
+     */
+    @GetMapping("/jwks")
+    public Map<String, Object> jwks() {
+        return jwtKeyStore.publicJwks();
+    }
 }
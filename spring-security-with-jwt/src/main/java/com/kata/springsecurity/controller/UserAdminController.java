@@ -0,0 +1,104 @@
+package com.kata.springsecurity.controller;
+
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.service.CachingUserDetailService;
+import com.kata.springsecurity.service.RefreshTokenService;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import com.kata.springsecurity.service.userimport.UserImportFormat;
+import com.kata.springsecurity.service.userimport.UserImportService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@AllArgsConstructor
+public class UserAdminController {
+
+    private final CustomUserRepository userRepository;
+    private final UserTokenVersionService tokenVersionService;
+    private final CachingUserDetailService userDetailsService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final UserImportService userImportService;
+    private final OpaqueTokenStore opaqueTokenStore;
+    private final RefreshTokenService refreshTokenService;
+
+
+    @PutMapping("/{username}/roles")
+    public ResponseEntity<?> updateRoles(@PathVariable String username, @RequestBody List<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one role is required");
+        }
+        long roleMask;
+        try {
+            roleMask = Role.mask(roles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        // les tokens émis avec les anciens rôles ne doivent plus être acceptés (version incrémentée en base) ;
+        // les autres noeuds relisent les lignes modifiées (UserTokenSyncService)
+        if (userRepository.updateRoles(username, roleMask, System.currentTimeMillis()) == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        // au moins la version posée par cet appel (plus si un autre changement a suivi)
+        long tokenVersion = userRepository.findTokenVersionByUsername(username).orElseThrow();
+        tokenVersionService.recordVersion(username, tokenVersion);
+        userDetailsService.evict(username);
+        return ResponseEntity.ok(Map.of(
+                "username", username,
+                "roles", Role.names(roleMask),
+                "tokenVersion", tokenVersion));
+    }
+
+
+    /**
+     * Compte compromis : révoque d'un coup tous les tokens déjà émis pour l'utilisateur.
+     */
+    @PostMapping("/{username}/revoke-tokens")
+    public ResponseEntity<?> revokeTokens(@PathVariable String username) {
+        Optional<Long> watermark = tokenWatermarkService.revokeAllTokens(username);
+        if (watermark.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        // le seuil ne dure que le temps d'un JWT : sessions opaques et refresh tokens sont révoqués tout de suite
+        opaqueTokenStore.revokeAll(username);
+        refreshTokenService.revokeAll(username);
+        return ResponseEntity.ok(Map.of(
+                "username", username,
+                "tokensNotBefore", watermark.get()));
+    }
+
+
+    /**
+     * Import en masse (CSV ou NDJSON, selon le Content-Type) ; le corps est lu au fil de l'eau.
+     * Pour des millions de lignes, préférer le mode ligne de commande (UserImportRunner).
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        UserImportFormat format = UserImportFormat.fromMediaType(contentType).orElseThrow();
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(body, format));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.kata.springsecurity.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,9 +18,22 @@ import lombok.NoArgsConstructor;
 @Data
 public class CustomUser {
 
+    public static final String USERNAME_UNIQUE_INDEX = "custom_user_username_uk";
+
+    // séquence "pooled" : un aller-retour pour 50 ids, et des inserts groupables en batch (impossible avec IDENTITY)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "custom_user_seq")
+    @SequenceGenerator(name = "custom_user_seq", allocationSize = 50)
     private Long id;
+    // index unique USERNAME_UNIQUE_INDEX (migration V1)
+    @Column(nullable = false, unique = true)
     private String username;
     private String password;
-    private String roles;}
+    // masque de Role (un bit par rôle), voir Role pour la correspondance
+    private long roleMask;
+    // incrémenté à chaque changement de rôles : invalide les tokens "stateless" émis avant
+    private long tokenVersion;
+    // "logout everywhere" : epoch (en ms) avant lequel tous les tokens émis sont refusés
+    private long tokensNotBefore;
+    // epoch (en ms) du dernier changement de tokenVersion ou de tokensNotBefore, relu par les autres noeuds (migration V4)
+    private long tokensChangedAt;}
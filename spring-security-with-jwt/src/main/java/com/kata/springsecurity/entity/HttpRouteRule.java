@@ -0,0 +1,33 @@
+package com.kata.springsecurity.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Règle d'accès d'une route (app.route-rules.source=database), voir RouteRule pour la syntaxe.
+ */
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class HttpRouteRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    // null : toutes les méthodes
+    @Column(length = 16)
+    private String httpMethod;
+    @Column(nullable = false)
+    private String pattern;
+    @Column(nullable = false)
+    private String access;
+}
@@ -0,0 +1,35 @@
+package com.kata.springsecurity.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(indexes = {
+        @Index(columnList = "createdAt"),
+        @Index(columnList = "maxExpiresAt")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class PropagatedRevocationBatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String nodeId;
+    private long createdAt;
+    private long maxExpiresAt;
+    // lot encodé par RevocationBatch (quelques dizaines de Ko au plus)
+    @Column(length = 65536)
+    private byte[] payload;
+}
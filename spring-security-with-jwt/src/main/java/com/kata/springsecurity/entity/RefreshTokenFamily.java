@@ -0,0 +1,63 @@
+package com.kata.springsecurity.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+@Entity
+@Table(indexes = {
+        @Index(columnList = "username"),
+        @Index(columnList = "expiresAt")
+})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class RefreshTokenFamily implements Persistable<Long> {
+
+    // tiré au hasard (63 bits) : connaître l'id d'une famille suppose d'avoir eu un de ses tokens
+    @Id
+    private Long id;
+    private String username;
+    private long createdAt;
+    private long expiresAt;
+    // nombre de rotations : le token courant porte cette valeur, les tokens déjà utilisés une valeur inférieure
+    private long generation;
+    // empreinte (TokenDigest) du token courant
+    private long digestHi;
+    private long digestLo;
+
+    // id attribué par l'application : sans ce drapeau, save() relirait la ligne avant d'insérer
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newFamily = true;
+
+    @Override
+    public boolean isNew() {
+        return newFamily;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        newFamily = false;
+    }
+}
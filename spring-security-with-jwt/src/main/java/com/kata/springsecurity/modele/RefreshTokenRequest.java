@@ -0,0 +1,14 @@
+package com.kata.springsecurity.modele;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenRequest implements Serializable {
+    private String refreshToken;
+}
@@ -1,10 +1,88 @@
 package com.kata.springsecurity.repository;
 
 import com.kata.springsecurity.entity.CustomUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 public interface CustomUserRepository extends JpaRepository<CustomUser, Long> {
     Optional<CustomUser> findByUsername(String username);
+
+    /**
+     * Chemin de lecture de l'authentification : projection (select username, password, roleMask)
+     * dans une transaction en lecture seule, sans flush de la session. Servi par l'index unique sur username.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    /**
+     * Remplace le hash d'un utilisateur s'il est toujours celui lu au login (réécriture au coût courant) :
+     * un changement de mot de passe concurrent n'est pas écrasé.
+     *
+     * @return 0 si l'utilisateur n'existe plus ou si son hash a changé entre-temps
+     */
+    @Transactional
+    @Modifying
+    @Query("update CustomUser u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+    int updatePassword(String username, String oldPassword, String newPassword);
+
+    /**
+     * Changement de rôles en une seule requête : la version des tokens est incrémentée en base, sans relire
+     * l'entité. Un appel concurrent sur la même ligne (rôles, révocation) n'est ni écrasé ni annulé.
+     *
+     * @return 0 si l'utilisateur n'existe pas
+     */
+    @Transactional
+    @Modifying
+    @Query("update CustomUser u set u.roleMask = :roleMask, u.tokenVersion = u.tokenVersion + 1, u.tokensChangedAt = :changedAt"
+            + " where u.username = :username")
+    int updateRoles(String username, long roleMask, long changedAt);
+
+    @Transactional(readOnly = true)
+    @Query("select u.tokenVersion from CustomUser u where u.username = :username")
+    Optional<Long> findTokenVersionByUsername(String username);
+
+    /**
+     * "Logout everywhere" en une seule requête : le seuil ne fait qu'avancer, et un changement de rôles
+     * concurrent sur la même ligne n'est pas écrasé.
+     *
+     * @return 0 si l'utilisateur n'existe pas
+     */
+    @Transactional
+    @Modifying
+    @Query("update CustomUser u set u.tokensNotBefore = greatest(u.tokensNotBefore, :watermark), u.tokensChangedAt = :changedAt"
+            + " where u.username = :username")
+    int raiseTokensNotBefore(String username, long watermark, long changedAt);
+
+    @Transactional(readOnly = true)
+    @Query("select u.tokensNotBefore from CustomUser u where u.username = :username")
+    Optional<Long> findTokensNotBeforeByUsername(String username);
+
+    List<CustomUser> findByTokenVersionGreaterThan(long tokenVersion);
+
+    List<CustomUser> findByTokensNotBeforeGreaterThan(long tokensNotBefore);
+
+    @Transactional(readOnly = true)
+    List<CustomUser> findByTokensChangedAtGreaterThanEqual(long tokensChangedAt);
+
+    /**
+     * Violation de l'index unique sur username (nommé "PUBLIC.CUSTOM_USER_USERNAME_UK" par H2).
+     * Les inserts partent en batch JDBC : Spring ne la traduit pas en DuplicateKeyException.
+     */
+    static boolean isUsernameTaken(DataIntegrityViolationException e) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).endsWith(CustomUser.USERNAME_UNIQUE_INDEX);
+    }
 }
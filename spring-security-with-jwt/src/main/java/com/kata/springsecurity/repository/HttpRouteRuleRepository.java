@@ -0,0 +1,11 @@
+package com.kata.springsecurity.repository;
+
+import com.kata.springsecurity.entity.HttpRouteRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface HttpRouteRuleRepository extends JpaRepository<HttpRouteRule, Long> {
+
+    List<HttpRouteRule> findAllByOrderById();
+}
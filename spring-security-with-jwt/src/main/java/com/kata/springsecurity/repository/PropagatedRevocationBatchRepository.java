@@ -0,0 +1,21 @@
+package com.kata.springsecurity.repository;
+
+import com.kata.springsecurity.entity.PropagatedRevocationBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface PropagatedRevocationBatchRepository extends JpaRepository<PropagatedRevocationBatch, Long> {
+
+    List<PropagatedRevocationBatch> findByMaxExpiresAtGreaterThanOrderById(long now);
+
+    List<PropagatedRevocationBatch> findByCreatedAtGreaterThanEqualOrderById(long since);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PropagatedRevocationBatch b where b.maxExpiresAt <= :now")
+    int deleteExpired(long now);
+}
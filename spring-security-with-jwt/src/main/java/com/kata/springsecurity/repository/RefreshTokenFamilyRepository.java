@@ -0,0 +1,36 @@
+package com.kata.springsecurity.repository;
+
+import com.kata.springsecurity.entity.RefreshTokenFamily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, Long> {
+
+    /**
+     * Rotation : compare-and-set sur la génération lue, une seule requête concurrente l'emporte.
+     *
+     * @return 0 si la famille a disparu ou a déjà tourné
+     */
+    @Transactional
+    @Modifying
+    @Query("update RefreshTokenFamily f set f.generation = f.generation + 1, f.digestHi = :digestHi, f.digestLo = :digestLo,"
+            + " f.expiresAt = :expiresAt where f.id = :id and f.generation = :generation")
+    int rotate(long id, long generation, long digestHi, long digestLo, long expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshTokenFamily f where f.id = :id")
+    int deleteFamily(long id);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshTokenFamily f where f.username = :username")
+    int deleteByUsername(String username);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshTokenFamily f where f.expiresAt <= :now")
+    int deleteExpired(long now);
+}
@@ -0,0 +1,142 @@
+package com.kata.springsecurity.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.kata.springsecurity.config.UserPrincipal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Décorateur de {@link UserDetailsService} avec un cache borné (taille + TTL).
+ * Les usernames inconnus sont aussi mis en cache, pour une durée plus courte, afin que
+ * le credential stuffing ne remonte pas jusqu'à la base. Les métriques (hit ratio,
+ * temps de chargement) sont publiées sous le nom de cache "users".
+ * <p>
+ * Le chargement (requête JPA bloquante) est fait hors du verrou de la map du cache : sur un
+ * thread virtuel, un appel bloquant sous ce verrou (synchronized) épinglerait le thread porteur.
+ * Les lectures concurrentes du même username attendent le même chargement.
+ * <p>
+ * Les hashs réécrits au login (voir {@link UserDetailsPasswordService}) passent par le délégué, puis
+ * l'entrée en cache est retirée : sans quoi l'ancien hash, toujours servi, serait réécrit à chaque login.
+ */
+public class CachingUserDetailService implements UserDetailsService, UserDetailsPasswordService, MeterBinder {
+
+    private final UserDetailsService delegate;
+    private final AsyncCache<String, CachedUser> cache;
+
+    public CachingUserDetailService(UserDetailsService delegate, long maxSize, Duration ttl, Duration negativeTtl) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new PositiveOrNegativeTtl(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        CachedUser cachedUser = getOrLoad(username);
+        if (cachedUser.userDetails() == null) {
+            throw new UsernameNotFoundException(username);
+        }
+        // copie : Spring Security efface le mot de passe du principal après authentification
+        if (cachedUser.userDetails() instanceof UserPrincipal principal) {
+            return principal.copy();
+        }
+        return User.withUserDetails(cachedUser.userDetails()).build();
+    }
+
+    /**
+     * Sans effet si le délégué ne sait pas réécrire les hashs.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (!(delegate instanceof UserDetailsPasswordService passwordService)) {
+            return user;
+        }
+        UserDetails updated = passwordService.updatePassword(user, newPassword);
+        evict(user.getUsername());
+        return updated;
+    }
+
+    private CachedUser getOrLoad(String username) {
+        CompletableFuture<CachedUser> loading = new CompletableFuture<>();
+        // seule l'insertion du future se fait sous le verrou ; le premier lecteur charge ensuite
+        CompletableFuture<CachedUser> cached = cache.get(username, (key, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(load(username));
+            } catch (RuntimeException e) {
+                // un future en échec est retiré du cache : le prochain appel réessaie
+                loading.completeExceptionally(e);
+            }
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private CachedUser load(String username) {
+        try {
+            return new CachedUser(delegate.loadUserByUsername(username));
+        } catch (UsernameNotFoundException e) {
+            return CachedUser.UNKNOWN;
+        }
+    }
+
+    /**
+     * À appeler quand un utilisateur est créé ou modifié (inscription, changement de rôles, de mot de passe).
+     */
+    public void evict(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+    }
+
+    private record CachedUser(UserDetails userDetails) {
+        static final CachedUser UNKNOWN = new CachedUser(null);
+    }
+
+    private record PositiveOrNegativeTtl(long ttlNanos, long negativeTtlNanos) implements Expiry<String, CachedUser> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedUser value, long currentTime) {
+            return value.userDetails() != null ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedUser value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedUser value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
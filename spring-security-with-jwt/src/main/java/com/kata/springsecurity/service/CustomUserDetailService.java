@@ -1,10 +1,14 @@
 package com.kata.springsecurity.service;
 
-import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
 import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.repository.UserCredentials;
 import lombok.AllArgsConstructor;
-import org.springframework.security.core.userdetails.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -14,22 +18,41 @@ import java.util.Optional;
 
 @Service
 @AllArgsConstructor
-public class CustomUserDetailService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
 
     private final CustomUserRepository userRepository;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<CustomUser> myUserOptional = userRepository.findByUsername(username);
-        if (myUserOptional.isPresent()) {
-            CustomUser myUser = myUserOptional.get();
-            return User.builder()
-                    .username(myUser.getUsername())
-                    .password(myUser.getPassword())
-                    .roles(myUser.getRoles().split(","))
-                    .build();
+        // projection en lecture seule : pas d'entité gérée à charger pour trois colonnes
+        Optional<UserCredentials> credentials = userRepository.findCredentialsByUsername(username);
+        if (credentials.isPresent()) {
+            UserCredentials user = credentials.get();
+            // rôles = masque stocké en base, autorités partagées du registre Role
+            return new UserPrincipal(user.username(), user.password(), user.roleMask());
         } else {
             throw new UsernameNotFoundException(username);
         }
     }
+
+    /**
+     * Réécrit le hash après un login réussi, quand il n'est plus au format courant (sans préfixe {bcrypt},
+     * ou d'un coût BCrypt inférieur). Un échec n'empêche pas le login : la réécriture sera retentée au suivant.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        try {
+            if (userRepository.updatePassword(user.getUsername(), user.getPassword(), newPassword) == 0) {
+                return user;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to upgrade the password hash of {}", user.getUsername(), e);
+            return user;
+        }
+        if (user instanceof UserPrincipal principal) {
+            return principal.withPassword(newPassword);
+        }
+        return new UserPrincipal(user.getUsername(), newPassword, Role.maskOf(user.getAuthorities()));
+    }
 }
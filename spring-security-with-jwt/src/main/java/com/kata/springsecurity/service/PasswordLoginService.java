@@ -0,0 +1,96 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.PasswordHashingExecutor;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Login par mot de passe, découpé comme le DaoAuthenticationProvider mais par nature de travail :
+ * lecture de l'utilisateur sur le thread appelant (servie le plus souvent par le cache des UserDetails),
+ * BCrypt seul sur {@link PasswordHashingExecutor}, puis réécriture éventuelle du hash (voir
+ * {@link CachingUserDetailService#updatePassword}) sur l'exécuteur applicatif.
+ * <p>
+ * Un username inconnu coûte aussi un hachage : le temps de réponse ne révèle pas si le compte existe.
+ */
+@Service
+public class PasswordLoginService {
+
+    private final CachingUserDetailService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+    // hash comparé quand l'utilisateur est inconnu, calculé au premier besoin (coût BCrypt courant)
+    private volatile String userNotFoundPassword;
+
+    public PasswordLoginService(CachingUserDetailService userDetailsService,
+                                PasswordEncoder passwordEncoder,
+                                PasswordHashingExecutor passwordHashingExecutor) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+    }
+
+    /**
+     * @return l'utilisateur authentifié ; un future en échec avec BadCredentialsException (mot de passe faux
+     * ou utilisateur inconnu), AccountStatusException, ou RejectedExecutionException si la file de hachage est pleine
+     */
+    public CompletableFuture<UserDetails> authenticate(String username, String rawPassword) {
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            user = null;
+        }
+        UserDetails candidate = user;
+        return passwordHashingExecutor.submit(() -> checkPassword(candidate, rawPassword), this::complete);
+    }
+
+    // sur un thread de hachage : matches, et encode si le hash n'est plus au format courant
+    private PasswordCheck checkPassword(UserDetails user, String rawPassword) {
+        if (user == null || rawPassword == null) {
+            passwordEncoder.matches(rawPassword == null ? "" : rawPassword, userNotFoundPassword());
+            return PasswordCheck.REJECTED;
+        }
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            return PasswordCheck.REJECTED;
+        }
+        String upgradedPassword = passwordEncoder.upgradeEncoding(user.getPassword()) ? passwordEncoder.encode(rawPassword) : null;
+        return new PasswordCheck(user, upgradedPassword);
+    }
+
+    // sur l'exécuteur applicatif : statut du compte et réécriture du hash (UPDATE)
+    private UserDetails complete(PasswordCheck check) {
+        if (check.user() == null) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        accountStatusChecker.check(check.user());
+        if (check.upgradedPassword() == null) {
+            return check.user();
+        }
+        return userDetailsService.updatePassword(check.user(), check.upgradedPassword());
+    }
+
+    private String userNotFoundPassword() {
+        String encoded = userNotFoundPassword;
+        if (encoded == null) {
+            encoded = passwordEncoder.encode("userNotFoundPassword");
+            userNotFoundPassword = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * @param user             null si le mot de passe est refusé
+     * @param upgradedPassword nouveau hash à enregistrer, null si le hash est déjà au format courant
+     */
+    private record PasswordCheck(UserDetails user, String upgradedPassword) {
+        static final PasswordCheck REJECTED = new PasswordCheck(null, null);
+    }
+}
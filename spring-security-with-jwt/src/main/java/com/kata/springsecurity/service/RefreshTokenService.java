@@ -0,0 +1,207 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.entity.RefreshTokenFamily;
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresh tokens opaques, à usage unique, gardés en base (table refresh_token_family, partagée par les noeuds).
+ * <p>
+ * Chaque login ouvre une "famille" ; chaque refresh remplace le token courant de la famille par un
+ * nouveau (rotation). Le token porte l'id de sa famille et sa génération (nombre de rotations) : seule
+ * l'empreinte du token courant est gardée, une ligne par famille. Présenter un token d'une génération déjà
+ * dépassée (déjà utilisé, donc probablement volé) révoque toute la famille : le voleur comme l'utilisateur
+ * légitime doivent se reconnecter. "Logout everywhere" supprime directement les familles de l'utilisateur.
+ * <p>
+ * Un refresh coûte une lecture par clé primaire et un update compare-and-set, sans BCrypt.
+ * Le nombre de familles est borné par max-families : au-delà, le login est refusé plutôt que de laisser grossir la table.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    // id de famille (8 octets) + génération (8 octets) + aléa (24 octets)
+    private static final int TOKEN_BYTES = 40;
+    private static final int SECRET_OFFSET = 16;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final long refreshTokenLifetime;
+    private final long maxFamilies;
+    // recompté en base à chaque purge, tenu à jour entre deux par ce noeud (les autres noeuds n'y apparaissent qu'à la purge)
+    private final AtomicLong familyCount = new AtomicLong();
+
+    public RefreshTokenService(RefreshTokenFamilyRepository familyRepository,
+                               @Value("${app.refresh-token.expiration-time:7d}") Duration refreshTokenLifetime,
+                               @Value("${app.refresh-token.max-families:1000000}") long maxFamilies) {
+        this.familyRepository = familyRepository;
+        this.refreshTokenLifetime = refreshTokenLifetime.toMillis();
+        this.maxFamilies = maxFamilies;
+    }
+
+    @PostConstruct
+    void countFamilies() {
+        familyCount.set(familyRepository.count());
+    }
+
+    /**
+     * Ouvre une nouvelle famille pour l'utilisateur (login).
+     *
+     * @return vide si le nombre maximal de familles est atteint
+     */
+    public Optional<String> issue(String username) {
+        if (familyCount.get() >= maxFamilies) {
+            log.warn("Refresh token families limit reached ({}), login refused", maxFamilies);
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        // aléatoire : un id de famille ne se devine pas (une collision sur 63 bits échoue à l'insertion)
+        long familyId = secureRandom.nextLong() & Long.MAX_VALUE;
+        String refreshToken = newToken(familyId, 0);
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        familyRepository.save(RefreshTokenFamily.builder()
+                .id(familyId)
+                .username(username)
+                .createdAt(now)
+                .expiresAt(now + refreshTokenLifetime)
+                .generation(0)
+                .digestHi(digest.hi())
+                .digestLo(digest.lo())
+                .build());
+        familyCount.incrementAndGet();
+        return Optional.of(refreshToken);
+    }
+
+    /**
+     * Consomme le refresh token et en émet un nouveau dans la même famille.
+     *
+     * @return vide si le token est inconnu, expiré, révoqué ou rejoué
+     */
+    public Optional<Rotation> rotate(String refreshToken) {
+        PresentedToken presented = PresentedToken.parse(refreshToken);
+        if (presented == null) {
+            return Optional.empty();
+        }
+        RefreshTokenFamily family = familyRepository.findById(presented.familyId()).orElse(null);
+        long now = System.currentTimeMillis();
+        if (family == null || family.getExpiresAt() <= now) {
+            return Optional.empty();
+        }
+        if (presented.generation() < family.getGeneration()) {
+            // token déjà utilisé : rejeu, on révoque la famille
+            revokeFamily(family, "reuse");
+            return Optional.empty();
+        }
+        if (!presented.isCurrentOf(family)) {
+            return Optional.empty();
+        }
+        String nextToken = newToken(family.getId(), family.getGeneration() + 1);
+        TokenDigest nextDigest = TokenDigest.of(nextToken);
+        if (familyRepository.rotate(family.getId(), family.getGeneration(), nextDigest.hi(), nextDigest.lo(), now + refreshTokenLifetime) == 0) {
+            // le même token présenté deux fois en même temps (ou famille révoquée entre-temps) : rejeu
+            revokeFamily(family, "concurrent reuse");
+            return Optional.empty();
+        }
+        return Optional.of(new Rotation(family.getUsername(), nextToken));
+    }
+
+    /**
+     * Révoque la famille du refresh token (logout).
+     */
+    public void revoke(String refreshToken) {
+        PresentedToken presented = PresentedToken.parse(refreshToken);
+        if (presented == null) {
+            return;
+        }
+        familyRepository.findById(presented.familyId())
+                .filter(family -> presented.generation() < family.getGeneration() || presented.isCurrentOf(family))
+                .ifPresent(family -> {
+                    if (familyRepository.deleteFamily(family.getId()) > 0) {
+                        familyCount.decrementAndGet();
+                    }
+                });
+    }
+
+    /**
+     * Révoque toutes les familles de l'utilisateur ("logout everywhere", révocation par un admin), sur tous les noeuds.
+     *
+     * @return le nombre de familles révoquées
+     */
+    public int revokeAll(String username) {
+        int removed = familyRepository.deleteByUsername(username);
+        familyCount.addAndGet(-removed);
+        return removed;
+    }
+
+    public long familyCount() {
+        return familyCount.get();
+    }
+
+    /**
+     * Supprime les familles expirées et recompte la table.
+     */
+    @Scheduled(fixedRate = 60000)
+    public int cleanupExpiredTokens() {
+        int removed = familyRepository.deleteExpired(System.currentTimeMillis());
+        familyCount.set(familyRepository.count());
+        return removed;
+    }
+
+    private void revokeFamily(RefreshTokenFamily family, String reason) {
+        if (familyRepository.deleteFamily(family.getId()) > 0) {
+            familyCount.decrementAndGet();
+            log.warn("Refresh token {} detected for user {}, token family revoked", reason, family.getUsername());
+        }
+    }
+
+    private String newToken(long familyId, long generation) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        ByteBuffer.wrap(bytes).putLong(familyId).putLong(generation);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private record PresentedToken(long familyId, long generation, TokenDigest digest) {
+
+        // null si le token n'a pas le format d'un refresh token
+        static PresentedToken parse(String refreshToken) {
+            byte[] bytes;
+            try {
+                bytes = Base64.getUrlDecoder().decode(refreshToken);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (bytes.length != TOKEN_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, SECRET_OFFSET);
+            return new PresentedToken(buffer.getLong(), buffer.getLong(), TokenDigest.of(refreshToken));
+        }
+
+        // la génération seule ne prouve rien : l'empreinte doit être celle du token courant
+        boolean isCurrentOf(RefreshTokenFamily family) {
+            return generation == family.getGeneration()
+                    && digest.hi() == family.getDigestHi()
+                    && digest.lo() == family.getDigestLo();
+        }
+    }
+
+    /**
+     * @param username     propriétaire de la famille
+     * @param refreshToken le nouveau refresh token, à renvoyer au client
+     */
+    public record Rotation(String username, String refreshToken) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rattrape les "logout everywhere" et les changements de rôles faits sur les autres noeuds.
+ * {@link UserTokenWatermarkService} et {@link UserTokenVersionService} ne lisent la base qu'au démarrage,
+ * puis ne voient que les changements faits localement : sans ce polling, un compte révoqué sur le noeud A
+ * resterait utilisable sur le noeud B jusqu'à son redémarrage.
+ * <p>
+ * Toutes les poll-interval ms, les utilisateurs dont tokens_changed_at a avancé sont relus (index sur la colonne).
+ * Comme pour {@link com.kata.springsecurity.config.propagation.JpaRevocationPropagator}, le polling repart
+ * du précédent moins une fenêtre de recouvrement : une ligne commitée en retard n'est pas manquée. Relire une
+ * ligne déjà vue est sans effet (seuils et versions ne font qu'avancer).
+ */
+@Service
+@Slf4j
+public class UserTokenSyncService {
+
+    private final CustomUserRepository userRepository;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final UserTokenVersionService tokenVersionService;
+    private final CachingUserDetailService userDetailsService;
+    private final OpaqueTokenStore opaqueTokenStore;
+    private final long overlapMillis;
+    // seuils et versions viennent d'être chargés par les deux services (dépendances déjà initialisées)
+    private long lastPoll = System.currentTimeMillis();
+    // pas de synchronized autour d'une requête : il épinglerait un thread virtuel
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    public UserTokenSyncService(CustomUserRepository userRepository,
+                                UserTokenWatermarkService tokenWatermarkService,
+                                UserTokenVersionService tokenVersionService,
+                                CachingUserDetailService userDetailsService,
+                                OpaqueTokenStore opaqueTokenStore,
+                                @Value("${app.user-token-sync.overlap:10s}") Duration overlap) {
+        this.userRepository = userRepository;
+        this.tokenWatermarkService = tokenWatermarkService;
+        this.tokenVersionService = tokenVersionService;
+        this.userDetailsService = userDetailsService;
+        this.opaqueTokenStore = opaqueTokenStore;
+        this.overlapMillis = overlap.toMillis();
+    }
+
+    /**
+     * @return le nombre d'utilisateurs dont le seuil ou la version a avancé
+     */
+    @Scheduled(fixedDelayString = "${app.user-token-sync.poll-interval:1000}")
+    public int poll() {
+        pollLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            int changed = 0;
+            for (CustomUser user : userRepository.findByTokensChangedAtGreaterThanEqual(lastPoll - overlapMillis)) {
+                String username = user.getUsername();
+                boolean rolesChanged = tokenVersionService.recordVersion(username, user.getTokenVersion());
+                if (rolesChanged) {
+                    // UserDetails en cache avec les anciens rôles
+                    userDetailsService.evict(username);
+                }
+                boolean loggedOut = user.getTokensNotBefore() > 0 && tokenWatermarkService.recordWatermark(username, user.getTokensNotBefore());
+                if (loggedOut) {
+                    // sessions opaques ouvertes sur ce noeud (aucune en mode JWT)
+                    opaqueTokenStore.revokeAll(username);
+                }
+                if (rolesChanged || loggedOut) {
+                    changed++;
+                }
+            }
+            // avancé seulement si la lecture a réussi : sinon le prochain poll repart du même point
+            lastPoll = now;
+            if (changed > 0) {
+                log.debug("Applied token changes of {} users made on other nodes", changed);
+            }
+            return changed;
+        } finally {
+            pollLock.unlock();
+        }
+    }
+}
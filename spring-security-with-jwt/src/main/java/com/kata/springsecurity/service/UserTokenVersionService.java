@@ -0,0 +1,62 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Version courante des tokens de chaque utilisateur, gardée en mémoire pour que le mode
+ * "stateless principal" n'interroge jamais la base. Seuls les utilisateurs dont la version
+ * a déjà changé (> 0) sont stockés ; ils sont rechargés depuis la base au démarrage, et les changements
+ * faits sur les autres noeuds sont rattrapés par {@link UserTokenSyncService}.
+ */
+@Service
+@AllArgsConstructor
+@Slf4j
+public class UserTokenVersionService {
+
+    private final CustomUserRepository userRepository;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void loadVersions() {
+        for (CustomUser user : userRepository.findByTokenVersionGreaterThan(0L)) {
+            versions.put(user.getUsername(), user.getTokenVersion());
+        }
+        log.debug("Loaded {} user token versions", versions.size());
+    }
+
+    public long currentVersion(String username) {
+        return versions.getOrDefault(username, 0L);
+    }
+
+    /**
+     * Un token est accepté s'il porte une version au moins égale à la version courante.
+     */
+    public boolean isCurrent(String username, long tokenVersion) {
+        return tokenVersion >= currentVersion(username);
+    }
+
+    /**
+     * À appeler après avoir persisté une nouvelle version pour l'utilisateur (sur ce noeud ou sur un autre).
+     *
+     * @return true si la version de l'utilisateur a avancé
+     */
+    public boolean recordVersion(String username, long tokenVersion) {
+        boolean[] advanced = {false};
+        versions.compute(username, (key, current) -> {
+            if (current != null ? current >= tokenVersion : tokenVersion <= 0) {
+                return current;
+            }
+            advanced[0] = true;
+            return tokenVersion;
+        });
+        return advanced[0];
+    }
+}
@@ -0,0 +1,102 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Logout everywhere" : pour chaque utilisateur, date avant laquelle tous ses tokens sont refusés.
+ * Révoquer tous les tokens d'un compte ne coûte qu'une entrée ici, au lieu d'une entrée
+ * de blacklist par token. Seuls les utilisateurs concernés sont gardés en mémoire ; une entrée
+ * devient inutile une fois la durée de vie maximale d'un token écoulée. Les seuils posés sur les autres
+ * noeuds sont rattrapés par {@link UserTokenSyncService}.
+ */
+@Service
+@Slf4j
+public class UserTokenWatermarkService {
+
+    private final CustomUserRepository userRepository;
+    private final long maxTokenLifetime;
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+
+    public UserTokenWatermarkService(CustomUserRepository userRepository,
+                                     @Value("${app.expiration-time}") long maxTokenLifetime) {
+        this.userRepository = userRepository;
+        this.maxTokenLifetime = maxTokenLifetime;
+    }
+
+    @PostConstruct
+    void loadWatermarks() {
+        for (CustomUser user : userRepository.findByTokensNotBeforeGreaterThan(System.currentTimeMillis() - maxTokenLifetime)) {
+            watermarks.put(user.getUsername(), user.getTokensNotBefore());
+        }
+        log.debug("Loaded {} user token watermarks", watermarks.size());
+    }
+
+    /**
+     * @return epoch (en ms) avant lequel les tokens de l'utilisateur sont refusés, 0 si aucun
+     */
+    public long notBefore(String username) {
+        Long watermark = watermarks.get(username);
+        return watermark != null ? watermark : 0L;
+    }
+
+    /**
+     * Révoque tous les tokens déjà émis pour l'utilisateur.
+     * Le claim iat est à la seconde : le seuil est arrondi à la seconde suivante, un token émis
+     * dans la même seconde que la révocation est donc refusé lui aussi.
+     *
+     * @return le nouveau seuil, ou vide si l'utilisateur n'existe pas
+     */
+    @Transactional
+    public Optional<Long> revokeAllTokens(String username) {
+        long now = System.currentTimeMillis();
+        // les autres noeuds relisent les lignes modifiées (UserTokenSyncService)
+        if (userRepository.raiseTokensNotBefore(username, (now / 1000 + 1) * 1000, now) == 0) {
+            return Optional.empty();
+        }
+        // le seuil en base : celui posé ici, ou un plus récent
+        long watermark = userRepository.findTokensNotBeforeByUsername(username).orElseThrow();
+        recordWatermark(username, watermark);
+        return Optional.of(watermark);
+    }
+
+    /**
+     * Applique un seuil posé en base, par ce noeud ou par un autre.
+     *
+     * @return true si le seuil de l'utilisateur a avancé
+     */
+    public boolean recordWatermark(String username, long watermark) {
+        if (watermark < System.currentTimeMillis() - maxTokenLifetime) {
+            // trop ancien pour refuser quoi que ce soit
+            return false;
+        }
+        boolean[] advanced = {false};
+        watermarks.compute(username, (key, current) -> {
+            if (current != null && current >= watermark) {
+                return current;
+            }
+            advanced[0] = true;
+            return watermark;
+        });
+        return advanced[0];
+    }
+
+    /**
+     * Oublie les seuils plus anciens que la durée de vie d'un token : ils ne peuvent plus rien refuser.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void cleanupWatermarks() {
+        long horizon = System.currentTimeMillis() - maxTokenLifetime;
+        watermarks.values().removeIf(watermark -> watermark < horizon);
+    }
+}
@@ -0,0 +1,55 @@
+package com.kata.springsecurity.service.userimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+
+public enum UserImportFormat {
+
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    UserImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public static Optional<UserImportFormat> fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return Optional.of(CSV);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return Optional.of(NDJSON);
+        }
+        return Optional.empty();
+    }
+
+    public static Optional<UserImportFormat> fromMediaType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        for (UserImportFormat format : values()) {
+            if (type.startsWith(format.mediaType)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+
+    UserImportReader open(InputStream input, ObjectMapper objectMapper) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        return this == CSV ? UserImportReader.csv(reader) : UserImportReader.ndjson(reader, objectMapper);
+    }
+}
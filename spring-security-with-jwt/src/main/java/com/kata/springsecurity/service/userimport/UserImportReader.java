@@ -0,0 +1,199 @@
+package com.kata.springsecurity.service.userimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lecture ligne à ligne du fichier d'import : la mémoire utilisée ne dépend pas de la taille du fichier.
+ */
+public abstract class UserImportReader implements Closeable {
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    UserImportReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * CSV avec une ligne d'en-tête : colonnes username, password ou password_hash, roles (facultative).
+     * Les champs contenant une virgule sont entre guillemets ("ADMIN,USER").
+     */
+    public static UserImportReader csv(BufferedReader reader) {
+        return new Csv(reader);
+    }
+
+    /**
+     * Un objet JSON par ligne : {"username": ..., "password" | "passwordHash": ..., "roles": ...}.
+     */
+    public static UserImportReader ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+        return new Ndjson(reader, objectMapper);
+    }
+
+    /**
+     * @return la ligne suivante, ou null en fin de fichier
+     */
+    public UserImportRow next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank() || skip(line));
+        return parse(lineNumber, line);
+    }
+
+    // en-tête CSV
+    boolean skip(String line) {
+        return false;
+    }
+
+    abstract UserImportRow parse(long lineNumber, String line);
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static final class Csv extends UserImportReader {
+
+        private int username = -1;
+        private int password = -1;
+        private int passwordHash = -1;
+        private int roles = -1;
+        private boolean headerRead;
+
+        Csv(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        boolean skip(String line) {
+            if (headerRead) {
+                return false;
+            }
+            List<String> columns = split(line);
+            for (int i = 0; i < columns.size(); i++) {
+                switch (columns.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "username" -> username = i;
+                    case "password" -> password = i;
+                    case "password_hash" -> passwordHash = i;
+                    case "roles" -> roles = i;
+                    default -> {
+                        // colonne ignorée
+                    }
+                }
+            }
+            if (username < 0 || (password < 0 && passwordHash < 0)) {
+                throw new IllegalArgumentException("CSV header must declare username and password or password_hash columns");
+            }
+            headerRead = true;
+            return true;
+        }
+
+        @Override
+        UserImportRow parse(long lineNumber, String line) {
+            List<String> fields = split(line);
+            if (fields == null) {
+                return UserImportRow.invalid(lineNumber, "Unterminated quoted field");
+            }
+            return new UserImportRow(lineNumber, field(fields, username), field(fields, password),
+                    field(fields, passwordHash), field(fields, roles), null);
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? emptyToNull(fields.get(index)) : null;
+        }
+
+        /**
+         * @return les champs de la ligne, ou null si un guillemet n'est pas refermé
+         */
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class Ndjson extends UserImportReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(BufferedReader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        UserImportRow parse(long lineNumber, String line) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                return UserImportRow.invalid(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return UserImportRow.invalid(lineNumber, "Invalid JSON: an object is expected");
+            }
+            return new UserImportRow(lineNumber, text(node, "username"), text(node, "password"),
+                    text(node, "passwordHash"), roles(node.get("roles")), null);
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : emptyToNull(value.asText());
+        }
+
+        // "ADMIN,USER" ou ["ADMIN", "USER"]
+        private static String roles(JsonNode value) {
+            if (value == null || value.isNull()) {
+                return null;
+            }
+            if (!value.isArray()) {
+                return emptyToNull(value.asText());
+            }
+            List<String> roles = new ArrayList<>();
+            value.forEach(role -> roles.add(role.asText()));
+            return emptyToNull(String.join(",", roles));
+        }
+    }
+}
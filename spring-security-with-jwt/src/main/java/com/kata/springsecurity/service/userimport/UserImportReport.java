@@ -0,0 +1,77 @@
+package com.kata.springsecurity.service.userimport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Avancement puis bilan d'un import. Seules les maxErrors premières erreurs sont gardées en détail,
+ * les suivantes ne sont que comptées : un fichier entièrement invalide ne remplit pas la mémoire.
+ */
+public class UserImportReport {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final int maxErrors;
+    private final LongAdder read = new LongAdder();
+    private final LongAdder imported = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final List<RowError> errors = new ArrayList<>();
+    private volatile long finishedAt;
+
+    UserImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void read(int rows) {
+        read.add(rows);
+    }
+
+    void imported(int rows) {
+        imported.add(rows);
+    }
+
+    void failed(long line, String message) {
+        failed.increment();
+        synchronized (errors) {
+            if (errors.size() < maxErrors) {
+                errors.add(new RowError(line, message));
+            }
+        }
+    }
+
+    void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public long getRead() {
+        return read.sum();
+    }
+
+    public long getImported() {
+        return imported.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return errors.stream().sorted((a, b) -> Long.compare(a.line(), b.line())).toList();
+        }
+    }
+
+    public long getDurationMillis() {
+        return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    /**
+     * @return lignes importées par seconde depuis le début
+     */
+    public long getRate() {
+        return getImported() * 1000 / Math.max(1, getDurationMillis());
+    }
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.kata.springsecurity.service.userimport;
+
+/**
+ * Une ligne du fichier d'import.
+ *
+ * @param line         numéro de ligne dans le fichier (pour le rapport d'erreurs)
+ * @param password     mot de passe en clair, haché pendant l'import
+ * @param passwordHash hash BCrypt déjà calculé (migration depuis un autre système), prioritaire sur password
+ * @param roles        rôles séparés par des virgules ou des '|', USER si absent
+ * @param error        ligne illisible : les autres champs sont null
+ */
+public record UserImportRow(long line, String username, String password, String passwordHash, String roles, String error) {
+
+    public static UserImportRow invalid(long line, String error) {
+        return new UserImportRow(line, null, null, null, null, error);
+    }
+}
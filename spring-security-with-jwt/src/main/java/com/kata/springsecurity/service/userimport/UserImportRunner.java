@@ -0,0 +1,54 @@
+package com.kata.springsecurity.service.userimport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Import en ligne de commande, sans serveur web, puis arrêt de l'application :
+ * <pre>
+ * java -jar app.jar --app.user-import.file=users.csv --spring.main.web-application-type=none
+ * </pre>
+ * Le code de sortie vaut 1 si au moins une ligne a été refusée.
+ */
+@Component
+@ConditionalOnProperty(name = "app.user-import.file")
+@Slf4j
+public class UserImportRunner implements ApplicationRunner {
+
+    private final UserImportService userImportService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+
+    public UserImportRunner(UserImportService userImportService,
+                            ConfigurableApplicationContext context,
+                            @Value("${app.user-import.file}") Path file) {
+        this.userImportService = userImportService;
+        this.context = context;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        UserImportFormat format = UserImportFormat.fromFileName(file.getFileName().toString())
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported import file (expected .csv, .ndjson or .jsonl): " + file));
+        UserImportReport report;
+        try (InputStream input = Files.newInputStream(file)) {
+            report = userImportService.importUsers(input, format);
+        }
+        report.getErrors().forEach(error -> log.warn("Line {} rejected: {}", error.line(), error.message()));
+        if (report.getFailed() > report.getErrors().size()) {
+            log.warn("{} more rejected lines not listed", report.getFailed() - report.getErrors().size());
+        }
+        System.exit(SpringApplication.exit(context, () -> report.getFailed() == 0 ? 0 : 1));
+    }
+}
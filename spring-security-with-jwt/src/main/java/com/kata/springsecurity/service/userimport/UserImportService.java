@@ -0,0 +1,201 @@
+package com.kata.springsecurity.service.userimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.service.CachingUserDetailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Import en masse d'utilisateurs (migration d'un tenant), hors du chemin de /api/auth/register.
+ * <p>
+ * Le fichier est lu par lots de chunk-size lignes. Pendant qu'un lot est haché en parallèle sur un
+ * ForkJoinPool dédié, le lot précédent est inséré en une transaction (inserts en batch JDBC, ids tirés
+ * de la séquence par blocs) : au plus trois lots en mémoire, quelle que soit la taille du fichier.
+ * Un lot refusé par la base (doublon) est rejoué ligne à ligne pour isoler les lignes fautives.
+ * <p>
+ * Le coût reste dominé par BCrypt (~100 ms par mot de passe et par coeur) : pour des millions
+ * d'utilisateurs, importer les hashs existants (password_hash / passwordHash). Ceux sans préfixe
+ * {bcrypt}, ou d'un coût inférieur au coût courant, sont réécrits au premier login de l'utilisateur.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    private static final Pattern ROLE_SEPARATOR = Pattern.compile("[,|]");
+    // même format que celui accepté par BCryptPasswordEncoder.matches, préfixe {bcrypt} facultatif
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\A(\\{bcrypt})?\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final CustomUserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final CachingUserDetailService userDetailsService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxErrors;
+    // un import à la fois : il occupe déjà tous les coeurs prévus pour le hachage
+    private final ReentrantLock importLock = new ReentrantLock();
+
+    /**
+     * @param parallelism threads de hachage ; 0 = tous les processeurs
+     */
+    public UserImportService(CustomUserRepository userRepository,
+                             PasswordEncoder passwordEncoder,
+                             CachingUserDetailService userDetailsService,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${app.user-import.chunk-size:1000}") int chunkSize,
+                             @Value("${app.user-import.parallelism:0}") int parallelism,
+                             @Value("${app.user-import.max-errors:1000}") int maxErrors) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsService = userDetailsService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Importe le flux jusqu'à sa fin.
+     *
+     * @throws IllegalStateException    si un import est déjà en cours
+     * @throws IllegalArgumentException si l'en-tête CSV est inutilisable
+     */
+    public UserImportReport importUsers(InputStream input, UserImportFormat format) throws IOException {
+        if (!importLock.tryLock()) {
+            throw new IllegalStateException("A user import is already running");
+        }
+        ForkJoinPool hashingPool = new ForkJoinPool(parallelism);
+        UserImportReport report = new UserImportReport(maxErrors);
+        try (UserImportReader reader = format.open(input, objectMapper)) {
+            CompletableFuture<List<PreparedUser>> previous = null;
+            List<UserImportRow> rows;
+            while (!(rows = readChunk(reader)).isEmpty()) {
+                report.read(rows.size());
+                List<UserImportRow> chunk = rows;
+                CompletableFuture<List<PreparedUser>> hashing = CompletableFuture.supplyAsync(() -> prepare(chunk, report), hashingPool);
+                if (previous != null) {
+                    insert(previous.join(), report);
+                }
+                previous = hashing;
+            }
+            if (previous != null) {
+                insert(previous.join(), report);
+            }
+        } finally {
+            hashingPool.shutdownNow();
+            importLock.unlock();
+        }
+        report.finish();
+        log.info("User import finished: {} imported, {} failed in {} ms",
+                report.getImported(), report.getFailed(), report.getDurationMillis());
+        return report;
+    }
+
+    private List<UserImportRow> readChunk(UserImportReader reader) throws IOException {
+        List<UserImportRow> rows = new ArrayList<>(chunkSize);
+        UserImportRow row;
+        while (rows.size() < chunkSize && (row = reader.next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // exécuté sur le ForkJoinPool : le parallelStream y découpe le lot entre ses threads
+    private List<PreparedUser> prepare(List<UserImportRow> rows, UserImportReport report) {
+        return rows.parallelStream()
+                .map(row -> prepare(row, report))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private PreparedUser prepare(UserImportRow row, UserImportReport report) {
+        String error = validate(row);
+        if (error != null) {
+            report.failed(row.line(), error);
+            return null;
+        }
+        long roleMask;
+        try {
+            roleMask = row.roles() != null ? Role.mask(List.of(ROLE_SEPARATOR.split(row.roles()))) : Role.USER.bit();
+        } catch (IllegalArgumentException e) {
+            report.failed(row.line(), e.getMessage());
+            return null;
+        }
+        String password = row.passwordHash() != null ? row.passwordHash() : passwordEncoder.encode(row.password());
+        CustomUser user = CustomUser.builder()
+                .username(row.username())
+                .password(password)
+                .roleMask(roleMask)
+                .build();
+        return new PreparedUser(row.line(), user);
+    }
+
+    private static String validate(UserImportRow row) {
+        if (row.error() != null) {
+            return row.error();
+        }
+        if (row.username() == null) {
+            return "Missing username";
+        }
+        if (row.passwordHash() != null) {
+            return BCRYPT_HASH.matcher(row.passwordHash()).matches() ? null : "Password hash is not a BCrypt hash";
+        }
+        return row.password() == null ? "Missing password" : null;
+    }
+
+    private void insert(List<PreparedUser> users, UserImportReport report) {
+        if (users.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    userRepository.saveAll(users.stream().map(PreparedUser::user).toList()));
+            report.imported(users.size());
+        } catch (DataIntegrityViolationException e) {
+            // tout le lot a été annulé : on le rejoue ligne à ligne pour n'écarter que les lignes fautives
+            for (PreparedUser user : users) {
+                insertOne(user, report);
+            }
+        }
+        // des usernames importés ont pu être mis en cache comme inconnus
+        users.forEach(user -> userDetailsService.evict(user.user().getUsername()));
+        log.info("User import progress: {} read, {} imported, {} failed, {} users/s",
+                report.getRead(), report.getImported(), report.getFailed(), report.getRate());
+    }
+
+    private void insertOne(PreparedUser user, UserImportReport report) {
+        // l'id attribué pendant la transaction annulée n'a pas été écrit : on en reprend un
+        user.user().setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.save(user.user()));
+            report.imported(1);
+        } catch (DataIntegrityViolationException e) {
+            report.failed(user.line(), CustomUserRepository.isUsernameTaken(e)
+                    ? "Username is already taken"
+                    : "Rejected by the database: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private record PreparedUser(long line, CustomUser user) {
+    }
+}
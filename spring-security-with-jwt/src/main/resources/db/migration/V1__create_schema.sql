@@ -0,0 +1,27 @@
+-- Schéma initial (auparavant généré par Hibernate au démarrage)
+
+-- ids tirés par blocs de 50 (allocationSize de CustomUser) : les inserts peuvent partir en batch JDBC
+CREATE SEQUENCE custom_user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE custom_user (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    username          VARCHAR(255) NOT NULL,
+    password          VARCHAR(255),
+    roles             VARCHAR(255),
+    token_version     BIGINT       NOT NULL DEFAULT 0,
+    tokens_not_before BIGINT       NOT NULL DEFAULT 0
+);
+
+-- l'unicité est garantie par la base : l'inscription n'a plus besoin de relire la table
+CREATE UNIQUE INDEX custom_user_username_uk ON custom_user (username);
+
+CREATE TABLE propagated_revocation_batch (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    node_id        VARCHAR(255),
+    created_at     BIGINT NOT NULL,
+    max_expires_at BIGINT NOT NULL,
+    payload        BYTEA
+);
+
+CREATE INDEX propagated_revocation_batch_created_at_idx ON propagated_revocation_batch (created_at);
+CREATE INDEX propagated_revocation_batch_max_expires_at_idx ON propagated_revocation_batch (max_expires_at);
@@ -0,0 +1,8 @@
+-- Rôles stockés comme un masque de bits (voir Role : USER = 1, ADMIN = 2) au lieu d'une chaîne "ADMIN,USER"
+ALTER TABLE custom_user ADD COLUMN role_mask BIGINT NOT NULL DEFAULT 0;
+
+UPDATE custom_user SET role_mask =
+      (CASE WHEN ',' || roles || ',' LIKE '%,USER,%' THEN 1 ELSE 0 END)
+    + (CASE WHEN ',' || roles || ',' LIKE '%,ADMIN,%' THEN 2 ELSE 0 END);
+
+ALTER TABLE custom_user DROP COLUMN roles;
@@ -0,0 +1,7 @@
+-- Règles d'accès par route, lues par RouteAuthorizationManager quand app.route-rules.source=database
+CREATE TABLE http_route_rule (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    http_method VARCHAR(16),
+    pattern     VARCHAR(255) NOT NULL,
+    access      VARCHAR(255) NOT NULL
+);
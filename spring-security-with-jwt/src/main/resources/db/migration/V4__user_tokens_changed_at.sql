@@ -0,0 +1,5 @@
+-- Date (epoch ms) du dernier changement de tokens_not_before ou de token_version, posée par le noeud qui l'a fait :
+-- les autres noeuds relisent les lignes récentes (UserTokenSyncService) au lieu d'attendre leur redémarrage
+ALTER TABLE custom_user ADD COLUMN tokens_changed_at BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX custom_user_tokens_changed_at_idx ON custom_user (tokens_changed_at);
@@ -0,0 +1,14 @@
+-- Familles de refresh tokens (RefreshTokenService) : une ligne par login, partagée par tous les noeuds.
+-- Seule l'empreinte du token courant est gardée ; generation (portée aussi par le token) repère le rejeu d'un token déjà utilisé
+CREATE TABLE refresh_token_family (
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL,
+    created_at BIGINT       NOT NULL,
+    expires_at BIGINT       NOT NULL,
+    generation BIGINT       NOT NULL,
+    digest_hi  BIGINT       NOT NULL,
+    digest_lo  BIGINT       NOT NULL
+);
+
+CREATE INDEX refresh_token_family_username_idx ON refresh_token_family (username);
+CREATE INDEX refresh_token_family_expires_at_idx ON refresh_token_family (expires_at);
@@ -0,0 +1,35 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BCryptCostCalibratorTest {
+
+    private static final long PROBE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void picksTheHighestStrengthWithinTheTarget() {
+        // 10 ms au coût 8 : 80 ms au coût 11, 160 ms au coût 12
+        assertThat(BCryptCostCalibrator.strengthFor(TimeUnit.MILLISECONDS.toNanos(100), PROBE, 4, 31)).isEqualTo(11);
+        assertThat(BCryptCostCalibrator.strengthFor(TimeUnit.MILLISECONDS.toNanos(160), PROBE, 4, 31)).isEqualTo(12);
+    }
+
+    @Test
+    void staysWithinTheStrengthRange() {
+        assertThat(BCryptCostCalibrator.strengthFor(TimeUnit.MILLISECONDS.toNanos(1), PROBE, 10, 14)).isEqualTo(10);
+        assertThat(BCryptCostCalibrator.strengthFor(TimeUnit.HOURS.toNanos(1), PROBE, 10, 14)).isEqualTo(14);
+    }
+
+    @Test
+    void calibratesOnThisMachine() {
+        assertThat(BCryptCostCalibrator.calibrate(Duration.ofMillis(1), 4, 6)).isEqualTo(4);
+        assertThat(BCryptCostCalibrator.calibrate(Duration.ofHours(1), 4, 6)).isEqualTo(6);
+        assertThatThrownBy(() -> BCryptCostCalibrator.calibrate(Duration.ofMillis(100), 12, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
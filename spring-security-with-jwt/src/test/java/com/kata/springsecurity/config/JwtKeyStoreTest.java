@@ -0,0 +1,112 @@
+package com.kata.springsecurity.config;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rotationKeepsVerifyingTokensSignedWithTheRetiringKey() throws Exception {
+        KeyPair first = generateKeyPair();
+        KeyPair second = generateKeyPair();
+        Path keysFile = directory.resolve("jwt-keys.json");
+        writeKeys(keysFile, "k1", "{" + key("k1", first, true) + "}");
+        JwtKeyStore keyStore = new JwtKeyStore("unused", keysFile.toString(), event -> {
+        });
+        JWTUtils jwtUtils = new JWTUtils(keyStore, 900_000L, false);
+
+        String oldToken = jwtUtils.generateToken("bob");
+
+        // nouvelle clé active, l'ancienne ne sert plus qu'à vérifier
+        writeKeys(keysFile, "k2", "{" + key("k2", second, true) + "},{" + key("k1", first, false) + "}");
+        keyStore.reload();
+        String newToken = jwtUtils.generateToken("bob");
+
+        assertThat(jwtUtils.verify(oldToken).username()).isEqualTo("bob");
+        assertThat(jwtUtils.verify(newToken).username()).isEqualTo("bob");
+        assertThat(keyStore.activeKid()).isEqualTo("k2");
+        assertThat((List<?>) keyStore.publicJwks().get("keys")).hasSize(2);
+
+        // ancienne clé retirée : ses tokens ne sont plus acceptés
+        writeKeys(keysFile, "k2", "{" + key("k2", second, true) + "}");
+        keyStore.reload();
+
+        assertThatThrownBy(() -> jwtUtils.verify(oldToken)).isInstanceOf(JwtException.class);
+        assertThat(jwtUtils.verify(newToken).username()).isEqualTo("bob");
+    }
+
+    @Test
+    void removingAKeyEvictsTheVerifiedTokenCache() throws Exception {
+        KeyPair first = generateKeyPair();
+        KeyPair second = generateKeyPair();
+        Path keysFile = directory.resolve("jwt-keys.json");
+        writeKeys(keysFile, "k1", "{" + key("k1", first, true) + "}");
+        AtomicReference<VerifiedTokenCache> cache = new AtomicReference<>();
+        JwtKeyStore keyStore = new JwtKeyStore("unused", keysFile.toString(),
+                event -> cache.get().onJwtKeysRemoved((JwtKeysRemovedEvent) event));
+        JWTUtils jwtUtils = new JWTUtils(keyStore, 900_000L, false);
+        cache.set(new VerifiedTokenCache(jwtUtils, true, 100));
+        String oldToken = jwtUtils.generateToken("bob");
+        cache.get().verify(oldToken);
+
+        // k1 retiré : le token déjà en cache ne doit plus passer
+        writeKeys(keysFile, "k2", "{" + key("k2", second, true) + "}");
+        keyStore.reload();
+
+        assertThat(cache.get().size()).isZero();
+        assertThatThrownBy(() -> cache.get().verify(oldToken)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void invalidKeysFileKeepsTheCurrentKeys() throws Exception {
+        Path keysFile = directory.resolve("jwt-keys.json");
+        writeKeys(keysFile, "k1", "{" + key("k1", generateKeyPair(), true) + "}");
+        JwtKeyStore keyStore = new JwtKeyStore("unused", keysFile.toString(), event -> {
+        });
+
+        Files.writeString(keysFile, "{ \"active\": \"missing\", \"keys\": [] }");
+        keysFile.toFile().setLastModified(System.currentTimeMillis() + 5_000);
+        keyStore.reloadIfChanged();
+
+        assertThat(keyStore.activeKid()).isEqualTo("k1");
+    }
+
+    @Test
+    void hmacModePublishesNoKey() {
+        assertThat(JwtKeyStore.hmac("mySecretKeymySecretKeymySecretKeymySecretKey").publicJwks())
+                .isEqualTo(Map.of("keys", List.of()));
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static String key(String kid, KeyPair keyPair, boolean withPrivateKey) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return "\"kid\":\"" + kid + "\",\"publicKey\":\"" + encoder.encodeToString(keyPair.getPublic().getEncoded()) + "\""
+                + (withPrivateKey ? ",\"privateKey\":\"" + encoder.encodeToString(keyPair.getPrivate().getEncoded()) + "\"" : "");
+    }
+
+    private static void writeKeys(Path keysFile, String active, String keys) throws Exception {
+        Files.writeString(keysFile, "{\"active\":\"" + active + "\",\"keys\":[" + keys + "]}");
+    }
+}
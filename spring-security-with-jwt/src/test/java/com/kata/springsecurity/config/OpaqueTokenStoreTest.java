@@ -0,0 +1,66 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpaqueTokenStoreTest {
+
+    private static final UserPrincipal BOB = new UserPrincipal("bob", "hash", Role.mask(Role.ADMIN, Role.USER));
+
+    @Test
+    void issuesCompactHandlesAndAccountsForTheirMemory() {
+        OpaqueTokenStore store = store(Duration.ofMinutes(30), Duration.ofHours(12), 10);
+
+        String handle = store.issue(BOB, 3L).orElseThrow();
+
+        assertThat(handle).hasSize(22).matches("[A-Za-z0-9_-]+");
+        OpaqueTokenStore.Session session = store.resolve(handle);
+        assertThat(session.username()).isEqualTo("bob");
+        assertThat(session.roleMask()).isEqualTo(Role.mask(Role.ADMIN, Role.USER));
+        assertThat(session.tokenVersion()).isEqualTo(3L);
+        assertThat(store.memoryBytes()).isEqualTo(OpaqueTokenStore.SESSION_BYTES + 40L + "bob".length());
+
+        assertThat(store.revoke(handle)).isTrue();
+        assertThat(store.resolve(handle)).isNull();
+        assertThat(store.revoke(handle)).isFalse();
+        assertThat(store.memoryBytes()).isZero();
+        assertThatThrownBy(() -> store.resolve("eyJhbGciOiJIUzI1NiJ9.e30.sig")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void idleSessionsExpireAndTheTableIsBounded() throws Exception {
+        OpaqueTokenStore store = store(Duration.ofMillis(50), Duration.ofHours(12), 2);
+        String first = store.issue(BOB, 0L).orElseThrow();
+        store.issue(new UserPrincipal("alice", "hash", Role.USER.bit()), 0L).orElseThrow();
+
+        // pleine, et rien n'a encore expiré
+        assertThat(store.issue(BOB, 0L)).isEmpty();
+
+        Thread.sleep(100);
+        assertThat(store.resolve(first)).isNull();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.issue(BOB, 0L)).isPresent();
+    }
+
+    @Test
+    void revokeAllClosesEverySessionOfTheUser() {
+        OpaqueTokenStore store = store(Duration.ofMinutes(30), Duration.ofHours(12), 10);
+        String phone = store.issue(BOB, 0L).orElseThrow();
+        String laptop = store.issue(BOB, 0L).orElseThrow();
+        String alice = store.issue(new UserPrincipal("alice", "hash", Role.USER.bit()), 0L).orElseThrow();
+
+        assertThat(store.revokeAll("bob")).isEqualTo(2);
+
+        assertThat(store.resolve(phone)).isNull();
+        assertThat(store.resolve(laptop)).isNull();
+        assertThat(store.resolve(alice)).isNotNull();
+    }
+
+    private static OpaqueTokenStore store(Duration idleTimeout, Duration maxLifetime, long maxEntries) {
+        return new OpaqueTokenStore("opaque", idleTimeout, maxLifetime, maxEntries);
+    }
+}
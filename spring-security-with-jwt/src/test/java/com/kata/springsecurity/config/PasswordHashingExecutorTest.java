@@ -0,0 +1,68 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    @Test
+    void rejectsImmediatelyWhenTheQueueIsFull() throws Exception {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, Runnable::run);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> running = executor.submit(() -> {
+                await(release);
+                return "running";
+            });
+            CompletableFuture<String> queued = executor.submit(() -> "queued");
+            while (executor.queueSize() == 0 && !running.isDone()) {
+                Thread.onSpinWait();
+            }
+
+            CompletableFuture<String> rejected = executor.submit(() -> "rejected");
+
+            assertThatThrownBy(rejected::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(RejectedExecutionException.class);
+            release.countDown();
+            assertThat(running.get()).isEqualTo("running");
+            assertThat(queued.get()).isEqualTo("queued");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void continuationRunsOffTheHashingThreads() throws Exception {
+        ExecutorService continuation = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "continuation"));
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, continuation);
+        try {
+            CompletableFuture<String> threads = executor.submit(
+                    () -> Thread.currentThread().getName(),
+                    hashingThread -> hashingThread + " -> " + Thread.currentThread().getName());
+
+            assertThat(threads.get()).isEqualTo("password-hashing-1 -> continuation");
+        } finally {
+            executor.shutdown();
+            continuation.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
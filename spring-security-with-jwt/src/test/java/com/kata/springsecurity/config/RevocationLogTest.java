@@ -0,0 +1,43 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevocationLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void revocationsSurviveARestart() throws Exception {
+        long expiration = System.currentTimeMillis() + 60_000;
+        TokenBlacklistService before = new TokenBlacklistService(event -> {}, 100, 1000, false, 1000, 900_000);
+        RevocationLog log = new RevocationLog(before, directory, 2);
+        log.replay();
+        for (String token : new String[]{"a", "b", "c"}) {
+            log.append(TokenDigest.of(token), expiration);
+        }
+        log.append(TokenDigest.of("expired"), System.currentTimeMillis() - 1);
+        log.close();
+
+        TokenBlacklistService after = new TokenBlacklistService(event -> {}, 100, 1000, false, 1000, 900_000);
+        RevocationLog restarted = new RevocationLog(after, directory, 2);
+        restarted.replay();
+
+        assertThat(after.isTokenBlacklisted("a")).isTrue();
+        assertThat(after.isTokenBlacklisted("c")).isTrue();
+        assertThat(after.isTokenBlacklisted("expired")).isFalse();
+        assertThat(restarted.segmentCount()).isEqualTo(2);
+
+        // le dernier segment est repris à son premier emplacement libre
+        restarted.append(TokenDigest.of("d"), expiration);
+        restarted.close();
+        TokenBlacklistService third = new TokenBlacklistService(event -> {}, 100, 1000, false, 1000, 900_000);
+        new RevocationLog(third, directory, 2).replay();
+        assertThat(third.size()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,30 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScopedValueSecurityContextHolderStrategyTest {
+
+    private final ScopedValueSecurityContextHolderStrategy strategy = new ScopedValueSecurityContextHolderStrategy();
+
+    @Test
+    void contextDoesNotOutliveItsScope() throws Exception {
+        SecurityContext inScope = ScopedValueSecurityContextHolderStrategy.callInScope(() -> {
+            SecurityContext context = strategy.createEmptyContext();
+            context.setAuthentication(new TestingAuthenticationToken("bob", null, "ROLE_USER"));
+            strategy.setContext(context);
+            // pas de clearContext() : la fin de la portée suffit
+            return strategy.getContext();
+        });
+
+        assertThat(inScope.getAuthentication().getName()).isEqualTo("bob");
+        assertThat(strategy.getContext().getAuthentication()).isNull();
+        ScopedValueSecurityContextHolderStrategy.callInScope(() -> {
+            assertThat(strategy.getContext().getAuthentication()).isNull();
+            return null;
+        });
+    }
+}
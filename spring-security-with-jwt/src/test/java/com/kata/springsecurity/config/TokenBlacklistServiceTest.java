@@ -0,0 +1,82 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBlacklistServiceTest {
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void revokedTokenIsBlacklistedAndPublished() {
+        TokenBlacklistService service = new TokenBlacklistService(events::add, 10, 1000, true, 1000, 900_000);
+
+        assertThat(service.blacklistToken("token", System.currentTimeMillis() + 60_000)).isTrue();
+
+        assertThat(service.isTokenBlacklisted("token")).isTrue();
+        assertThat(service.isTokenBlacklisted("other")).isFalse();
+        assertThat(events).singleElement().isInstanceOf(TokenRevokedEvent.class);
+    }
+
+    @Test
+    void tokenBlacklistedTwiceIsPublishedOnce() {
+        TokenBlacklistService service = new TokenBlacklistService(events::add, 10, 1000, true, 1000, 900_000);
+        long expiration = System.currentTimeMillis() + 60_000;
+
+        assertThat(service.blacklistToken("token", expiration)).isTrue();
+        assertThat(service.blacklistToken("token", expiration)).isTrue();
+
+        assertThat(service.size()).isEqualTo(1);
+        assertThat(events).singleElement().isInstanceOf(TokenRevokedEvent.class);
+    }
+
+    @Test
+    void refusesNewEntriesWhenFull() {
+        TokenBlacklistService service = new TokenBlacklistService(events::add, 2, 1000, true, 1000, 900_000);
+        long expiration = System.currentTimeMillis() + 60_000;
+
+        assertThat(service.blacklistToken("a", expiration)).isTrue();
+        assertThat(service.blacklistToken("b", expiration)).isTrue();
+        assertThat(service.blacklistToken("c", expiration)).isFalse();
+        assertThat(service.isTokenBlacklisted("a")).isTrue();
+        assertThat(service.size()).isEqualTo(2);
+    }
+
+    @Test
+    void bloomFilterNeverForgetsARevokedToken() {
+        RevocationBloomFilter bloomFilter = new RevocationBloomFilter(900_000, 1, 1000, 0.01);
+        long expiration = System.currentTimeMillis() + 600_000;
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.add(TokenDigest.of("revoked-" + i), expiration);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(bloomFilter.mightContain(TokenDigest.of("revoked-" + i))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (bloomFilter.mightContain(TokenDigest.of("valid-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(bloomFilter.estimatedFalsePositiveRate()).isLessThan(0.03);
+    }
+
+    @Test
+    void expiryBucketsOnlyReturnDueKeys() {
+        ExpiryBuckets<String> buckets = new ExpiryBuckets<>(1000);
+        buckets.schedule("expired", 10_000);
+        buckets.schedule("alive", 60_000);
+        List<String> expired = new ArrayList<>();
+
+        buckets.expire(20_000, expired::add);
+
+        assertThat(expired).containsExactly("expired");
+        assertThat(buckets.bucketCount()).isEqualTo(1);
+    }
+}
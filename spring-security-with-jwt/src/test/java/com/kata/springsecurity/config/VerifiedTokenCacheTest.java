@@ -0,0 +1,47 @@
+package com.kata.springsecurity.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+
+    private final JWTUtils jwtUtils = new JWTUtils(SECRET, 900_000L);
+
+    @Test
+    void verifiesSignatureOnlyOnceForTheSameToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtils, true, 100);
+        String token = jwtUtils.generateToken("bob");
+
+        VerifiedToken first = cache.verify(token);
+        VerifiedToken second = cache.verify(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void revokedTokenIsEvicted() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtils, true, 100);
+        String token = jwtUtils.generateToken("bob");
+        VerifiedToken verified = cache.verify(token);
+
+        cache.onTokenRevoked(new TokenRevokedEvent(TokenDigest.of(token), verified.expiresAt()));
+        cache.verify(token);
+
+        assertThat(cache.stats().missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledCacheDelegatesToJwtUtils() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtils, false, 100);
+        String token = jwtUtils.generateToken("bob");
+
+        assertThat(cache.verify(token).username()).isEqualTo("bob");
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+}
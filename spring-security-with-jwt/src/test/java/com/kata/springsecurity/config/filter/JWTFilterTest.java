@@ -0,0 +1,142 @@
+package com.kata.springsecurity.config.filter;
+
+import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.VerifiedTokenCache;
+import com.kata.springsecurity.config.filter.JwtFilterMetrics.Outcome;
+import com.kata.springsecurity.service.UserTokenVersionService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JWTFilterTest {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+
+    private final JWTUtils jwtUtils = new JWTUtils(SECRET, 900_000L);
+    private final TokenBlacklistService blacklist = new TokenBlacklistService(event -> { }, 1000L, 1000L, false, 500_000L, 900_000L);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JwtFilterMetrics metrics = new JwtFilterMetrics(List.of(Duration.ofMillis(5)));
+    private final JWTFilter filter = new JWTFilter(jwtUtils,
+            username -> {
+                if (username.equals("BOB")) {
+                    // recherche insensible à la casse : le sujet du token ne correspond pas à l'utilisateur chargé
+                    return User.withUsername("bob").password("ignored").roles("USER").build();
+                }
+                if (!username.equals("bob")) {
+                    throw new UsernameNotFoundException(username);
+                }
+                return User.withUsername("bob").password("ignored").roles("USER").build();
+            },
+            blacklist,
+            new VerifiedTokenCache(jwtUtils, false, 100),
+            new UserTokenVersionService(null),
+            new UserTokenWatermarkService(null, 900_000L),
+            metrics);
+
+    JWTFilterTest() {
+        metrics.bindTo(registry);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void recordsEachStageOfAnAuthenticatedRequest() throws Exception {
+        MockHttpServletResponse response = doFilter("Bearer " + jwtUtils.generateToken("bob"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(metrics.count(Outcome.AUTHENTICATED)).isEqualTo(1);
+        for (String stage : List.of("header", "blacklist", "verify", "watermark", "user", "context")) {
+            assertThat(registry.get("auth.filter.stage").tag("stage", stage).timer().count()).isEqualTo(1);
+        }
+        assertThat(registry.get("auth.filter.duration").timer().count()).isEqualTo(1);
+        assertThat(registry.get("auth.filter.outcome").tag("outcome", "authenticated").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void requestWithoutTokenIsAnonymous() throws Exception {
+        doFilter(null);
+
+        assertThat(metrics.count(Outcome.ANONYMOUS)).isEqualTo(1);
+    }
+
+    @Test
+    void revokedTokenIsRejected() throws Exception {
+        String token = jwtUtils.generateToken("bob");
+        blacklist.blacklistToken(token, System.currentTimeMillis() + 60_000L);
+
+        MockHttpServletResponse response = doFilter("Bearer " + token);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(metrics.count(Outcome.REVOKED)).isEqualTo(1);
+        // les étapes suivantes n'ont pas été franchies
+        assertThat(registry.get("auth.filter.stage").tag("stage", "verify").timer().count()).isZero();
+    }
+
+    @Test
+    void distinguishesVerificationFailures() throws Exception {
+        doFilter("Bearer " + new JWTUtils(SECRET, -1000L).generateToken("bob"));
+        doFilter("Bearer " + new JWTUtils(SECRET.replace('m', 'n'), 900_000L).generateToken("bob"));
+        doFilter("Bearer not-a-jwt");
+
+        assertThat(metrics.count(Outcome.EXPIRED)).isEqualTo(1);
+        assertThat(metrics.count(Outcome.INVALID_SIGNATURE)).isEqualTo(1);
+        assertThat(metrics.count(Outcome.MALFORMED)).isEqualTo(1);
+    }
+
+    @Test
+    void tokenOfADeletedUserIsRejected() throws Exception {
+        MockHttpServletResponse response = doFilter("Bearer " + jwtUtils.generateToken("alice"));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(metrics.count(Outcome.UNKNOWN_USER)).isEqualTo(1);
+    }
+
+    @Test
+    void tokenRefusedByValidationIsNotCountedAsAuthenticated() throws Exception {
+        MockHttpServletResponse response = doFilter("Bearer " + jwtUtils.generateToken("BOB"));
+
+        // pas de 401 : la requête continue sans authentification
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(metrics.count(Outcome.INVALID)).isEqualTo(1);
+        assertThat(metrics.count(Outcome.AUTHENTICATED)).isZero();
+    }
+
+    @Test
+    void existingAuthenticationIsKept() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_USER"));
+
+        doFilter("Bearer " + jwtUtils.generateToken("bob"));
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("alice");
+        assertThat(metrics.count(Outcome.ALREADY_AUTHENTICATED)).isEqualTo(1);
+        assertThat(metrics.count(Outcome.AUTHENTICATED)).isZero();
+    }
+
+    private MockHttpServletResponse doFilter(String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/protected");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,68 @@
+package com.kata.springsecurity.config.propagation;
+
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.repository.PropagatedRevocationBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// base H2 embarquée : le second noeud partage la même table
+@SpringBootTest(properties = "app.revocation-propagation.type=jpa")
+class JpaRevocationPropagationIT {
+
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private RevocationPropagationService revocationPropagationService;
+
+    @Autowired
+    private PropagatedRevocationBatchRepository repository;
+
+    @Test
+    void revocationReachesANodeStartedAfterIt() {
+        tokenBlacklistService.blacklistToken("token", System.currentTimeMillis() + 60_000);
+        revocationPropagationService.flush();
+        assertThat(repository.count()).isPositive();
+
+        TokenBlacklistService otherBlacklist = new TokenBlacklistService(event -> {}, 1000, 1000, false, 1000, 900_000);
+        RevocationPropagationService otherNode = new RevocationPropagationService(otherBlacklist,
+                new JpaRevocationPropagator(repository, Duration.ofSeconds(10)), "other");
+        otherNode.catchUp();
+
+        assertThat(otherBlacklist.isTokenBlacklisted("token")).isTrue();
+
+        tokenBlacklistService.blacklistToken("second", System.currentTimeMillis() + 60_000);
+        revocationPropagationService.flush();
+        otherNode.poll();
+
+        assertThat(otherBlacklist.isTokenBlacklisted("second")).isTrue();
+    }
+
+    @Test
+    void batchWhoseApplicationFailedIsDeliveredAgain() {
+        JpaRevocationPropagator propagator = new JpaRevocationPropagator(repository, Duration.ofSeconds(10));
+        propagator.poll(batch -> { });
+        tokenBlacklistService.blacklistToken("retried", System.currentTimeMillis() + 60_000);
+        revocationPropagationService.flush();
+
+        assertThatThrownBy(() -> propagator.poll(batch -> {
+            throw new IllegalStateException("blacklist is full");
+        })).isInstanceOf(IllegalStateException.class);
+
+        List<RevocationBatch> delivered = new ArrayList<>();
+        propagator.poll(delivered::add);
+        assertThat(delivered).hasSize(1);
+        // appliqué : plus rendu
+        delivered.clear();
+        propagator.poll(delivered::add);
+        assertThat(delivered).isEmpty();
+    }
+}
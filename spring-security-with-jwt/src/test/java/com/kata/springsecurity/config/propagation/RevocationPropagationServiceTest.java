@@ -0,0 +1,92 @@
+package com.kata.springsecurity.config.propagation;
+
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.config.TokenRevokedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevocationPropagationServiceTest {
+
+    @Test
+    void logoutOnOneNodeRevokesTheTokenOnTheOthers() {
+        InMemoryRevocationPropagator bus = new InMemoryRevocationPropagator();
+        Node a = new Node(bus, "a");
+        Node b = new Node(bus.connect(), "b");
+
+        a.blacklist.blacklistToken("token", System.currentTimeMillis() + 60_000);
+        assertThat(b.blacklist.isTokenBlacklisted("token")).isFalse();
+
+        a.propagation.flush();
+        b.propagation.poll();
+
+        assertThat(b.blacklist.isTokenBlacklisted("token")).isTrue();
+        // reçue d'un autre noeud : pas renvoyée
+        assertThat(b.propagation.pendingCount()).isZero();
+
+        // un noeud qui démarre rattrape les révocations déjà propagées
+        Node c = new Node(bus.connect(), "c");
+        c.propagation.catchUp();
+        assertThat(c.blacklist.isTokenBlacklisted("token")).isTrue();
+    }
+
+    @Test
+    void revocationRefusedByAFullBlacklistIsRetried() throws InterruptedException {
+        InMemoryRevocationPropagator bus = new InMemoryRevocationPropagator();
+        Node a = new Node(bus, "a", 1000);
+        Node b = new Node(bus.connect(), "b", 1);
+        // la seule place de b est prise, par une révocation qui expire bientôt
+        b.blacklist.blacklistToken("short-lived", System.currentTimeMillis() + 50);
+
+        a.blacklist.blacklistToken("token", System.currentTimeMillis() + 60_000);
+        a.propagation.flush();
+        b.propagation.poll();
+        assertThat(b.blacklist.isTokenBlacklisted("token")).isFalse();
+
+        Thread.sleep(100);
+        b.propagation.poll();
+
+        assertThat(b.blacklist.isTokenBlacklisted("token")).isTrue();
+    }
+
+    @Test
+    void batchRoundTripsAllRevocations() {
+        long now = System.currentTimeMillis();
+        List<TokenRevokedEvent> revocations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            revocations.add(new TokenRevokedEvent(TokenDigest.of("token-" + i), now + 60_000 + i * 37L));
+        }
+
+        RevocationBatch batch = RevocationBatch.of("a", revocations);
+        List<TokenRevokedEvent> decoded = new ArrayList<>();
+        batch.forEach((digest, expiresAt) -> decoded.add(new TokenRevokedEvent(digest, expiresAt)));
+
+        assertThat(decoded).containsExactlyInAnyOrderElementsOf(revocations);
+        assertThat(batch.maxExpiresAt()).isEqualTo(now + 60_000 + 99 * 37L);
+        // 24 octets bruts par révocation
+        assertThat(batch.payload().length).isLessThan(100 * 24);
+    }
+
+    private static final class Node {
+
+        private final TokenBlacklistService blacklist;
+        private final RevocationPropagationService propagation;
+
+        private Node(RevocationPropagator propagator, String nodeId) {
+            this(propagator, nodeId, 1000);
+        }
+
+        private Node(RevocationPropagator propagator, String nodeId, long maxEntries) {
+            RevocationPropagationService[] listener = new RevocationPropagationService[1];
+            this.blacklist = new TokenBlacklistService(event -> listener[0].onTokenRevoked((TokenRevokedEvent) event),
+                    // seaux d'expiration courts : une entrée échue est libérée en quelques dizaines de ms
+                    maxEntries, 10, false, 1000, 900_000);
+            this.propagation = new RevocationPropagationService(blacklist, propagator, nodeId);
+            listener[0] = propagation;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.kata.springsecurity.config.route;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteAuthorizationManagerTest {
+
+    private static final Authentication ANONYMOUS =
+            new AnonymousAuthenticationToken("key", "anonymous", List.of(Role.USER.authority()));
+    private static final Authentication USER = authentication(Role.USER.bit());
+    private static final Authentication ADMIN = authentication(Role.mask(Role.ADMIN, Role.USER));
+
+    @Test
+    void mostSpecificRuleWinsWhateverTheDeclarationOrder() {
+        RouteAuthorizationManager manager = RouteAuthorizationManager.of(List.of(
+                RouteRule.parse("/api/**            ADMIN"),
+                RouteRule.parse("/api/*/items       USER"),
+                RouteRule.parse("/api/orders/{id}   authenticated"),
+                RouteRule.parse("/api/orders/export denyAll"),
+                RouteRule.parse("/api/public        permitAll")));
+
+        assertThat(granted(manager, "GET", "/api/public", ANONYMOUS)).isTrue();
+        assertThat(granted(manager, "GET", "/api/orders/42", USER)).isTrue();
+        assertThat(granted(manager, "GET", "/api/orders/export", ADMIN)).isFalse();
+        // "orders" existe en littéral mais sans "items" dessous : la règle "*" est essayée avant "**"
+        assertThat(granted(manager, "GET", "/api/orders/items", USER)).isTrue();
+        assertThat(granted(manager, "GET", "/api/orders/42/lines", USER)).isFalse();
+        assertThat(granted(manager, "GET", "/api/orders/42/lines", ADMIN)).isTrue();
+        // "**" couvre aussi son propre préfixe
+        assertThat(granted(manager, "GET", "/api", USER)).isFalse();
+        // sans règle : authentifié
+        assertThat(granted(manager, "GET", "/other", USER)).isTrue();
+        assertThat(granted(manager, "GET", "/other", ANONYMOUS)).isFalse();
+    }
+
+    @Test
+    void methodRulesComeBeforeRulesForAllMethods() {
+        RouteAuthorizationManager manager = RouteAuthorizationManager.of(List.of(
+                RouteRule.parse("/api/orders/*       USER"),
+                RouteRule.parse("DELETE /api/orders/* ADMIN"),
+                RouteRule.parse("GET /api/catalog    permitAll"),
+                RouteRule.parse("GET /api/catalog    denyAll")));
+
+        assertThat(granted(manager, "GET", "/api/orders/1", USER)).isTrue();
+        assertThat(granted(manager, "DELETE", "/api/orders/1", USER)).isFalse();
+        assertThat(granted(manager, "DELETE", "/api/orders/1", ADMIN)).isTrue();
+        // première règle déclarée pour une même méthode et un même chemin
+        assertThat(granted(manager, "GET", "/api/catalog", ANONYMOUS)).isTrue();
+        // pas de règle POST : on retombe sur la décision par défaut
+        assertThat(granted(manager, "POST", "/api/catalog", ANONYMOUS)).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThatThrownBy(() -> RouteAuthorizationManager.of(List.of(RouteRule.parse("/api/**/items USER"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RouteAuthorizationManager.of(List.of(RouteRule.parse("/api/*.json USER"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RouteAuthorizationManager.of(List.of(RouteRule.parse("/api SUPERVISOR"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RouteRule.parse("api USER")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void swapsTheRulesWhenTheFileChangesAndKeepsThemWhenItIsInvalid(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("route-rules.conf");
+        Files.writeString(file, "# règles\n/api/reports ADMIN\n");
+        RouteAuthorizationManager manager = new RouteAuthorizationManager(new ResourceRouteRuleSource(new FileSystemResource(file)));
+        assertThat(granted(manager, "GET", "/api/reports", USER)).isFalse();
+
+        Files.writeString(file, "/api/reports USER,ADMIN\n");
+        manager.reloadIfChanged();
+        assertThat(granted(manager, "GET", "/api/reports", USER)).isTrue();
+
+        Files.writeString(file, "/api/reports ADMIN extra field\n");
+        manager.reloadIfChanged();
+        assertThat(manager.rules()).containsExactly(new RouteRule(null, "/api/reports", "USER,ADMIN"));
+    }
+
+    private static boolean granted(RouteAuthorizationManager manager, String method, String path, Authentication authentication) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return manager.authorize(() -> authentication, new RequestAuthorizationContext(request)).isGranted();
+    }
+
+    private static Authentication authentication(long roleMask) {
+        UserPrincipal principal = new UserPrincipal("bob", null, roleMask);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
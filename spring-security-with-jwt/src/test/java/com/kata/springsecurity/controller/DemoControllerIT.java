@@ -14,9 +14,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.util.Map;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -54,13 +57,13 @@ class DemoControllerIT {
 
         String userJson = objectMapper.writeValueAsString(newUser);
 
-        mockMvc.perform(post("/api/auth/register")
+        performAsync(post("/api/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(userJson))
                 .andExpect(status().isOk());
 
         // verifier que l'utilisateur est bien enregistré et recuperer le token
-        String loginResponse = mockMvc.perform(post("/api/auth/login")
+        String loginResponse = performAsync(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(userJson))
                 .andExpect(status().isOk())
@@ -102,5 +105,10 @@ class DemoControllerIT {
 
     }
 
-
-}
\ No newline at end of file
+    // login et inscription sont asynchrones (hachage sur un exécuteur dédié)
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
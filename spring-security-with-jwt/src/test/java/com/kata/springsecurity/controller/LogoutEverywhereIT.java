@@ -0,0 +1,103 @@
+package com.kata.springsecurity.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// base H2 embarquée : pas besoin de conteneur
+@SpringBootTest
+@AutoConfigureMockMvc
+class LogoutEverywhereIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+    }
+
+    @Test
+    void revokingAllTokensRejectsEveryOutstandingTokenWithoutBlacklistingThem() throws Exception {
+        String bobToken = registerAndLogin("bob", false);
+        String adminToken = registerAndLogin("alice", true);
+        long blacklistSize = tokenBlacklistService.size();
+
+        mockMvc.perform(post("/api/admin/users/bob/revoke-tokens")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isUnauthorized());
+        assertThat(tokenBlacklistService.size()).isEqualTo(blacklistSize);
+
+        // le seuil est à la seconde (claim iat) : un nouveau login la seconde suivante est accepté
+        Thread.sleep(1000);
+        String newBobToken = login("bob");
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + newBobToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout-all")
+                        .header("Authorization", "Bearer " + newBobToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + newBobToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String registerAndLogin(String username, boolean admin) throws Exception {
+        performAsync(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation(username, "secret", admin))))
+                .andExpect(status().isOk());
+        return login(username);
+    }
+
+    private String login(String username) throws Exception {
+        String loginResponse = performAsync(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation(username, "secret", false))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return (String) objectMapper.readValue(loginResponse, Map.class).get("token");
+    }
+
+    // login et inscription sont asynchrones (hachage sur un exécuteur dédié)
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.kata.springsecurity.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.modele.RefreshTokenRequest;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// base H2 embarquée : pas besoin de conteneur ; une seule session opaque possible
+@SpringBootTest(properties = {"app.token.format=opaque", "app.opaque-token.max-entries=1"})
+@AutoConfigureMockMvc
+class OpaqueSessionLimitIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+        refreshTokenFamilyRepository.deleteAll();
+    }
+
+    @Test
+    void refreshRefusedForAFullSessionTableKeepsTheRotatedRefreshToken() throws Exception {
+        performAsync(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("bob", "secret", false))))
+                .andExpect(status().isOk());
+        Map<?, ?> login = body(performAsync(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("bob", "secret", false))))
+                .andExpect(status().isOk()));
+
+        // la seule session est prise par le login : le refresh est refusé mais le token a tourné
+        Map<?, ?> refused = body(refresh((String) login.get("refreshToken"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1")));
+        String rotatedRefreshToken = (String) refused.get("refreshToken");
+        assertThat(rotatedRefreshToken).isNotNull().isNotEqualTo(login.get("refreshToken"));
+
+        // une place se libère : le refresh token renvoyé avec le 503 est toujours valide
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + login.get("token")))
+                .andExpect(status().isOk());
+        Map<?, ?> refreshed = body(refresh(rotatedRefreshToken).andExpect(status().isOk()));
+        assertThat(refreshed.get("token")).isNotNull();
+        assertThat(refreshTokenFamilyRepository.count()).isEqualTo(1);
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken))));
+    }
+
+    private Map<?, ?> body(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(), Map.class);
+    }
+
+    // login et inscription sont asynchrones (hachage sur un exécuteur dédié)
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.kata.springsecurity.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// base H2 embarquée : pas besoin de conteneur
+@SpringBootTest(properties = "app.token.format=opaque")
+@AutoConfigureMockMvc
+class OpaqueTokenIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+    }
+
+    @Test
+    void opaqueTokenIsResolvedInTheSessionTableAndRevokedByRemovingIt() throws Exception {
+        String bobToken = registerAndLogin("bob", false);
+        assertThat(bobToken).hasSize(22).doesNotContain(".");
+        long blacklistSize = tokenBlacklistService.size();
+
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/admin")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isUnauthorized());
+        assertThat(tokenBlacklistService.size()).isEqualTo(blacklistSize);
+    }
+
+    @Test
+    void roleChangeAndRevokeAllCloseTheSessions() throws Exception {
+        String bobToken = registerAndLogin("bob", false);
+        String adminToken = registerAndLogin("alice", true);
+
+        // nouveaux rôles : la session ouverte avec les anciens est refusée
+        mockMvc.perform(put("/api/admin/users/bob/roles")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"USER\",\"ADMIN\"]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + bobToken))
+                .andExpect(status().isUnauthorized());
+
+        String newBobToken = login("bob");
+        mockMvc.perform(get("/api/admin")
+                        .header("Authorization", "Bearer " + newBobToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/admin/users/bob/revoke-tokens")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + newBobToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private String registerAndLogin(String username, boolean admin) throws Exception {
+        performAsync(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation(username, "secret", admin))))
+                .andExpect(status().isOk());
+        return login(username);
+    }
+
+    private String login(String username) throws Exception {
+        String loginResponse = performAsync(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation(username, "secret", false))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return (String) objectMapper.readValue(loginResponse, Map.class).get("token");
+    }
+
+    // login et inscription sont asynchrones (hachage sur un exécuteur dédié)
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
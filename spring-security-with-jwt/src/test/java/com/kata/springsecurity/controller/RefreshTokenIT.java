@@ -0,0 +1,118 @@
+package com.kata.springsecurity.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.modele.RefreshTokenRequest;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// base H2 embarquée : pas besoin de conteneur ; access tokens de 2 s pour dépasser leur durée de vie
+@SpringBootTest(properties = "app.expiration-time=2000")
+@AutoConfigureMockMvc
+class RefreshTokenIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @Autowired
+    UserTokenWatermarkService tokenWatermarkService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+        refreshTokenFamilyRepository.deleteAll();
+    }
+
+    @Test
+    void refreshTokenRotatesAndReuseRevokesTheFamily() throws Exception {
+        performAsync(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("carol", "secret", false))))
+                .andExpect(status().isOk());
+        Map<?, ?> login = body(performAsync(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("carol", "secret", false))))
+                .andExpect(status().isOk()));
+        String firstRefreshToken = (String) login.get("refreshToken");
+
+        Map<?, ?> refreshed = body(refresh(firstRefreshToken).andExpect(status().isOk()));
+        mockMvc.perform(get("/api/protected")
+                        .header("Authorization", "Bearer " + refreshed.get("token")))
+                .andExpect(status().isOk());
+
+        // une seule ligne par famille, quel que soit le nombre de rotations
+        assertThat(refreshTokenFamilyRepository.count()).isEqualTo(1);
+
+        // rejeu de l'ancien refresh token : refusé, et toute la famille est révoquée
+        refresh(firstRefreshToken).andExpect(status().isUnauthorized());
+        refresh((String) refreshed.get("refreshToken")).andExpect(status().isUnauthorized());
+        assertThat(refreshTokenFamilyRepository.count()).isZero();
+    }
+
+    @Test
+    void logoutAllRevokesRefreshTokensBeyondTheAccessTokenLifetime() throws Exception {
+        performAsync(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("dave", "secret", false))))
+                .andExpect(status().isOk());
+        Map<?, ?> login = body(performAsync(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation("dave", "secret", false))))
+                .andExpect(status().isOk()));
+
+        mockMvc.perform(post("/api/auth/logout-all")
+                        .header("Authorization", "Bearer " + login.get("token")))
+                .andExpect(status().isOk());
+
+        // le seuil du logout-all est oublié une fois la durée de vie des access tokens passée
+        Thread.sleep(2500);
+        tokenWatermarkService.cleanupWatermarks();
+
+        refresh((String) login.get("refreshToken")).andExpect(status().isUnauthorized());
+    }
+
+    private ResultActions refresh(String refreshToken) throws Exception {
+        return mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken))));
+    }
+
+    private Map<?, ?> body(ResultActions result) throws Exception {
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsString(), Map.class);
+    }
+
+    // login et inscription sont asynchrones (hachage sur un exécuteur dédié)
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.kata.springsecurity.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// base H2 embarquée, schéma créé par les migrations Flyway
+@SpringBootTest
+@AutoConfigureMockMvc
+class RegistrationIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+    }
+
+    @Test
+    void secondRegistrationOfTheSameUsernameIsRefusedByTheUniqueIndex() throws Exception {
+        register("bob").andExpect(status().isOk());
+
+        register("bob")
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Username is already taken"));
+
+        assertThat(customUserRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void idsComeFromThePooledSequence() throws Exception {
+        register("bob").andExpect(status().isOk());
+        register("alice").andExpect(status().isOk());
+
+        List<Long> ids = customUserRepository.findAll().stream().map(CustomUser::getId).sorted().toList();
+        // deux ids consécutifs du même bloc : un seul appel à la séquence
+        assertThat(ids.get(1) - ids.get(0)).isEqualTo(1);
+    }
+
+    // l'inscription est asynchrone (hachage sur un exécuteur dédié)
+    private ResultActions register(String username) throws Exception {
+        return mockMvc.perform(asyncDispatch(mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UserPresentation(username, "secret", false))))
+                .andExpect(request().asyncStarted())
+                .andReturn()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.kata.springsecurity.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachingUserDetailServiceTest {
+
+    private final Map<String, UserDetails> users = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final UserDetailsService delegate = username -> {
+        loads.incrementAndGet();
+        UserDetails user = users.get(username);
+        if (user == null) {
+            throw new UsernameNotFoundException(username);
+        }
+        return user;
+    };
+    private final CachingUserDetailService service =
+            new CachingUserDetailService(delegate, 100, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    @Test
+    void returnsACopyOfTheCachedUser() {
+        users.put("bob", User.withUsername("bob").password("hash").roles("USER").build());
+
+        UserDetails first = service.loadUserByUsername("bob");
+        UserDetails second = service.loadUserByUsername("bob");
+
+        assertThat(loads).hasValue(1);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPassword()).isEqualTo("hash");
+        assertThat(service.stats().hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void unknownUsernamesAreCachedUntilEvicted() {
+        assertThatThrownBy(() -> service.loadUserByUsername("alice")).isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> service.loadUserByUsername("alice")).isInstanceOf(UsernameNotFoundException.class);
+        assertThat(loads).hasValue(1);
+
+        users.put("alice", User.withUsername("alice").password("hash").roles("USER").build());
+        service.evict("alice");
+
+        assertThat(service.loadUserByUsername("alice").getUsername()).isEqualTo("alice");
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,54 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// base H2 embarquée, schéma créé par les migrations Flyway
+@SpringBootTest
+class CustomUserDetailServiceIT {
+
+    @Autowired
+    CustomUserDetailService customUserDetailService;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+        customUserRepository.save(CustomUser.builder().username("alice").password("hash").roleMask(Role.mask(Role.ADMIN, Role.USER)).build());
+    }
+
+    @Test
+    void projectionCarriesTheThreeAuthenticationColumns() {
+        assertThat(customUserRepository.findCredentialsByUsername("alice"))
+                .hasValueSatisfying(credentials -> {
+                    assertThat(credentials.username()).isEqualTo("alice");
+                    assertThat(credentials.password()).isEqualTo("hash");
+                    assertThat(credentials.roleMask()).isEqualTo(Role.mask(Role.ADMIN, Role.USER));
+                });
+        assertThat(customUserRepository.findCredentialsByUsername("nobody")).isEmpty();
+    }
+
+    @Test
+    void loadsThePrincipalFromTheProjection() {
+        UserDetails user = customUserDetailService.loadUserByUsername("alice");
+
+        assertThat(user).isInstanceOf(UserPrincipal.class);
+        assertThat(user.getPassword()).isEqualTo("hash");
+        assertThat(user.getAuthorities()).isEqualTo(Role.authorities(Role.mask(Role.ADMIN, Role.USER)));
+        assertThatThrownBy(() -> customUserDetailService.loadUserByUsername("nobody"))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.config.UserPrincipal;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// base H2 embarquée ; coût fixé pour ne pas dépendre de la calibration
+@SpringBootTest(properties = "app.password.bcrypt.strength=5")
+class PasswordUpgradeIT {
+
+    @Autowired
+    AuthenticationManager authenticationManager;
+
+    @Autowired
+    PasswordLoginService passwordLoginService;
+
+    @Autowired
+    CustomUserDetailService customUserDetailService;
+
+    @Autowired
+    CachingUserDetailService cachingUserDetailService;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+        cachingUserDetailService.evictAll();
+    }
+
+    @Test
+    void legacyHashIsRewrittenAtTheCurrentStrengthOnLogin() {
+        // hash d'avant le DelegatingPasswordEncoder : sans préfixe, coût 4
+        String legacyHash = new BCryptPasswordEncoder(4).encode("secret");
+        customUserRepository.save(CustomUser.builder().username("alice").password(legacyHash).roleMask(Role.USER.bit()).build());
+
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("alice", "secret"));
+
+        String upgraded = customUserRepository.findByUsername("alice").orElseThrow().getPassword();
+        assertThat(upgraded).startsWith("{bcrypt}$2a$05$");
+        assertThat(passwordEncoder.matches("secret", upgraded)).isTrue();
+
+        // déjà au format courant : plus réécrit
+        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken("alice", "secret"));
+        assertThat(customUserRepository.findByUsername("alice").orElseThrow().getPassword()).isEqualTo(upgraded);
+    }
+
+    @Test
+    void loginRewritesTheHashOffTheHashingThreads() {
+        String legacyHash = new BCryptPasswordEncoder(4).encode("secret");
+        customUserRepository.save(CustomUser.builder().username("alice").password(legacyHash).roleMask(Role.USER.bit()).build());
+
+        // la suite du hachage (UPDATE du hash) s'exécute sur l'exécuteur applicatif
+        String completingThread = passwordLoginService.authenticate("alice", "secret")
+                .thenApply(user -> Thread.currentThread().getName())
+                .join();
+
+        assertThat(completingThread).doesNotStartWith("password-hashing-");
+        assertThat(customUserRepository.findByUsername("alice").orElseThrow().getPassword()).startsWith("{bcrypt}$2a$05$");
+        assertThatThrownBy(() -> passwordLoginService.authenticate("alice", "wrong").join())
+                .hasCauseInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> passwordLoginService.authenticate("nobody", "secret").join())
+                .hasCauseInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void concurrentPasswordChangeIsNotOverwritten() {
+        customUserRepository.save(CustomUser.builder().username("alice").password("{bcrypt}changed").roleMask(Role.USER.bit()).build());
+        UserPrincipal staleUser = new UserPrincipal("alice", "stale", Role.USER.bit());
+
+        assertThat(customUserDetailService.updatePassword(staleUser, "{bcrypt}rehashed")).isSameAs(staleUser);
+        assertThat(customUserRepository.findByUsername("alice").orElseThrow().getPassword()).isEqualTo("{bcrypt}changed");
+    }
+}
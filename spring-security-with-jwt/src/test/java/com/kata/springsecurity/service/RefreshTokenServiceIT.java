@@ -0,0 +1,65 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// base H2 embarquée : le second noeud partage la même table refresh_token_family
+@SpringBootTest
+class RefreshTokenServiceIT {
+
+    @Autowired
+    RefreshTokenFamilyRepository familyRepository;
+
+    @BeforeEach
+    void setUp() {
+        familyRepository.deleteAll();
+    }
+
+    @Test
+    void refreshTokenIssuedOnOneNodeRotatesOnAnother() {
+        RefreshTokenService nodeA = new RefreshTokenService(familyRepository, Duration.ofDays(7), 10);
+        RefreshTokenService nodeB = new RefreshTokenService(familyRepository, Duration.ofDays(7), 10);
+
+        String first = nodeA.issue("bob").orElseThrow();
+        RefreshTokenService.Rotation rotation = nodeB.rotate(first).orElseThrow();
+        assertThat(rotation.username()).isEqualTo("bob");
+
+        // rejeu sur l'autre noeud : la famille est révoquée partout
+        assertThat(nodeA.rotate(first)).isEmpty();
+        assertThat(nodeB.rotate(rotation.refreshToken())).isEmpty();
+        assertThat(familyRepository.count()).isZero();
+    }
+
+    @Test
+    void issueFailsClosedOnceTheFamilyLimitIsReached() {
+        RefreshTokenService service = new RefreshTokenService(familyRepository, Duration.ofDays(7), 2);
+        service.countFamilies();
+
+        assertThat(service.issue("bob")).isPresent();
+        assertThat(service.issue("bob")).isPresent();
+        assertThat(service.issue("bob")).isEmpty();
+
+        service.revokeAll("bob");
+        assertThat(service.issue("bob")).isPresent();
+    }
+
+    @Test
+    void malformedOrForgedTokensAreRejected() {
+        RefreshTokenService service = new RefreshTokenService(familyRepository, Duration.ofDays(7), 10);
+        String token = service.issue("bob").orElseThrow();
+
+        assertThat(service.rotate("not-a-refresh-token")).isEmpty();
+        // même famille et même génération, secret différent : refusé sans révoquer la famille
+        char last = token.charAt(token.length() - 2);
+        String forged = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+        assertThat(service.rotate(forged)).isEmpty();
+        assertThat(service.rotate(token)).isPresent();
+    }
+}
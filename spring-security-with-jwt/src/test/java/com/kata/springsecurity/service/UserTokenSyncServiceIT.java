@@ -0,0 +1,72 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.OpaqueTokenStore;
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// base H2 embarquée : le second noeud partage la même table custom_user
+@SpringBootTest
+class UserTokenSyncServiceIT {
+
+    @Autowired
+    UserTokenWatermarkService tokenWatermarkService;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+        customUserRepository.save(CustomUser.builder().username("bob").password("hash").roleMask(Role.USER.bit()).build());
+    }
+
+    @Test
+    void logoutEverywhereAndRoleChangeReachAnotherNode() {
+        UserTokenWatermarkService otherWatermarks = new UserTokenWatermarkService(customUserRepository, 300_000);
+        otherWatermarks.loadWatermarks();
+        UserTokenVersionService otherVersions = new UserTokenVersionService(customUserRepository);
+        otherVersions.loadVersions();
+        UserTokenSyncService otherNode = new UserTokenSyncService(customUserRepository, otherWatermarks, otherVersions,
+                new CachingUserDetailService(username -> null, 10, Duration.ofMinutes(1), Duration.ofMinutes(1)),
+                new OpaqueTokenStore("jwt", Duration.ofMinutes(30), Duration.ofHours(12), 10),
+                Duration.ofSeconds(10));
+
+        long watermark = tokenWatermarkService.revokeAllTokens("bob").orElseThrow();
+        // changement de rôles, comme PUT /api/admin/users/{username}/roles
+        customUserRepository.updateRoles("bob", Role.ADMIN.bit(), System.currentTimeMillis());
+        assertThat(otherWatermarks.notBefore("bob")).isZero();
+
+        assertThat(otherNode.poll()).isEqualTo(1);
+
+        assertThat(otherWatermarks.notBefore("bob")).isEqualTo(watermark);
+        assertThat(otherVersions.currentVersion("bob")).isEqualTo(1);
+        // le changement de rôles n'a pas effacé le seuil posé juste avant
+        assertThat(customUserRepository.findByUsername("bob").orElseThrow().getTokensNotBefore()).isEqualTo(watermark);
+        // déjà appliqué : relire la fenêtre de recouvrement ne change rien
+        assertThat(otherNode.poll()).isZero();
+    }
+
+    @Test
+    void logoutEverywhereKeepsARoleChangeMadeBefore() {
+        customUserRepository.updateRoles("bob", Role.ADMIN.bit(), System.currentTimeMillis());
+
+        long watermark = tokenWatermarkService.revokeAllTokens("bob").orElseThrow();
+
+        CustomUser bob = customUserRepository.findByUsername("bob").orElseThrow();
+        assertThat(bob.getRoleMask()).isEqualTo(Role.ADMIN.bit());
+        assertThat(bob.getTokenVersion()).isEqualTo(1);
+        assertThat(bob.getTokensNotBefore()).isEqualTo(watermark);
+        // le seuil ne recule pas
+        assertThat(tokenWatermarkService.revokeAllTokens("bob").orElseThrow()).isGreaterThanOrEqualTo(watermark);
+        assertThat(tokenWatermarkService.revokeAllTokens("nobody")).isEmpty();
+    }
+}
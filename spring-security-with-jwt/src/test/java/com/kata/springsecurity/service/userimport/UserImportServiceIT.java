@@ -0,0 +1,90 @@
+package com.kata.springsecurity.service.userimport;
+
+import com.kata.springsecurity.config.Role;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// base H2 embarquée ; petits lots pour traverser plusieurs transactions
+@SpringBootTest(properties = {"app.user-import.chunk-size=2", "app.user-import.parallelism=2"})
+class UserImportServiceIT {
+
+    // hash BCrypt de "123"
+    private static final String HASH = "$2a$12$JRP8vS.dBHiGYBAkT69K9.UEt/F1P09jYVhUAAfwTJMhiKK8HjLxu";
+
+    @Autowired
+    UserImportService userImportService;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll();
+    }
+
+    @Test
+    void importsCsvAndReportsRejectedLines() throws Exception {
+        customUserRepository.save(CustomUser.builder().username("existing").password(HASH).roleMask(Role.USER.bit()).build());
+        String csv = """
+                username,password,password_hash,roles
+                alice,secret,,"ADMIN,USER"
+                bob,,%s,
+                existing,secret,,
+                carol,,not-a-hash,
+                ,secret,,
+                bob,other,,
+                dave,secret,,ADMIN|USER
+                """.formatted(HASH);
+
+        UserImportReport report = userImportService.importUsers(stream(csv), UserImportFormat.CSV);
+
+        assertThat(report.getRead()).isEqualTo(7);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getErrors())
+                .extracting(UserImportReport.RowError::line, UserImportReport.RowError::message)
+                .containsExactly(
+                        tuple(4L, "Username is already taken"),
+                        tuple(5L, "Password hash is not a BCrypt hash"),
+                        tuple(6L, "Missing username"),
+                        tuple(7L, "Username is already taken"));
+        CustomUser alice = customUserRepository.findByUsername("alice").orElseThrow();
+        assertThat(alice.getRoleMask()).isEqualTo(Role.mask(Role.ADMIN, Role.USER));
+        assertThat(passwordEncoder.matches("secret", alice.getPassword())).isTrue();
+        assertThat(customUserRepository.findByUsername("bob").orElseThrow().getPassword()).isEqualTo(HASH);
+        assertThat(customUserRepository.findByUsername("dave").orElseThrow().getRoleMask()).isEqualTo(Role.mask(Role.ADMIN, Role.USER));
+    }
+
+    @Test
+    void importsNdjson() throws Exception {
+        String ndjson = """
+                {"username": "alice", "password": "secret", "roles": ["ADMIN", "USER"]}
+                {"username": "bob", "passwordHash": "%s"}
+                {"username": "carol"
+                """.formatted(HASH);
+
+        UserImportReport report = userImportService.importUsers(stream(ndjson), UserImportFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors().get(0).line()).isEqualTo(3);
+        assertThat(customUserRepository.findByUsername("bob").orElseThrow().getRoleMask()).isEqualTo(Role.USER.bit());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
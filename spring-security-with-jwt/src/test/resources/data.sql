@@ -1,6 +0,0 @@
-CREATE TABLE IF NOT EXISTS custom_user (
-   id BIGSERIAL PRIMARY KEY,
-   username VARCHAR(255) NOT NULL,
-    password VARCHAR(255) NOT NULL,
-    roles VARCHAR(255) NOT NULL
-    );
\ No newline at end of file
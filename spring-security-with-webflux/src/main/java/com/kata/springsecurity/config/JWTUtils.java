@@ -0,0 +1,63 @@
+package com.kata.springsecurity.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Émission et vérification des JWT. Purement CPU (pas d'I/O) : appelable depuis un thread de l'event loop.
+ */
+@Configuration
+public class JWTUtils {
+
+    private final long jwtExpirationTime;
+
+    // construits une seule fois au démarrage, puis partagés (thread-safe) par toutes les requêtes ;
+    // la clé de vérification est choisie par kid dans le jeu de clés courant
+    private final JwtKeyStore keyStore;
+    private final JwtParser jwtParser;
+
+    public JWTUtils(JwtKeyStore keyStore,
+                    @Value("${app.expiration-time}") long jwtExpirationTime) {
+        this.jwtExpirationTime = jwtExpirationTime;
+        this.keyStore = keyStore;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyStore)
+                .build();
+    }
+
+    public String generateToken(String username) {
+        long now = System.currentTimeMillis();
+        return keyStore.sign(Jwts.builder()
+                        .setClaims(new HashMap<>())
+                        .setSubject(username)
+                        .setIssuedAt(new Date(now))
+                        .setExpiration(new Date(now + jwtExpirationTime)))
+                .compact();
+    }
+
+    /**
+     * Parse le token et vérifie sa signature (et son expiration) une seule fois.
+     * @throws io.jsonwebtoken.JwtException si le token est invalide, mal formé ou expiré
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        Date issuedAt = claims.getIssuedAt();
+        return new VerifiedToken(
+                claims.getSubject(),
+                issuedAt != null ? issuedAt.getTime() : 0L,
+                claims.getExpiration().getTime());
+    }
+
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return Objects.equals(token.username(), userDetails.getUsername())
+                && !token.isExpired(System.currentTimeMillis());
+    }
+}
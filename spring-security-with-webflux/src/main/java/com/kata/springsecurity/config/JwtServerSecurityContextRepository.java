@@ -0,0 +1,72 @@
+package com.kata.springsecurity.config;
+
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import io.jsonwebtoken.JwtException;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Équivalent réactif du JWTFilter : reconstruit le SecurityContext à partir du JWT de l'en-tête
+ * Authorization, à chaque requête (rien n'est sauvegardé côté serveur).
+ * <p>
+ * Blacklist, signature et seuil "logout everywhere" sont vérifiés sur l'event loop (CPU et mémoire
+ * seulement) ; seule la lecture de l'utilisateur passe par la base, sans bloquer de thread.
+ * Un token refusé donne une 401, comme dans la version servlet.
+ */
+@AllArgsConstructor
+public class JwtServerSecurityContextRepository implements ServerSecurityContextRepository {
+
+    private final JWTUtils jwtUtils;
+    private final ReactiveUserDetailsService userDetailsService;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+
+    @Override
+    public Mono<Void> save(ServerWebExchange exchange, SecurityContext context) {
+        // stateless : le token suffit
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<SecurityContext> load(ServerWebExchange exchange) {
+        String authorizationHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return Mono.empty();
+        }
+        String jwt = authorizationHeader.substring(7);
+        // 1) Vérifier la blacklist
+        if (tokenBlacklistService.isBlacklisted(TokenDigest.of(jwt))) {
+            return unauthorized("Token has been revoked");
+        }
+        // 2) Parser et vérifier la signature une seule fois
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtUtils.verify(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            return unauthorized("Invalid token");
+        }
+        // 3) "Logout everywhere" : tous les tokens émis avant le seuil de l'utilisateur sont refusés
+        if (verifiedToken.issuedAt() < tokenWatermarkService.notBefore(verifiedToken.username())) {
+            return unauthorized("Token has been revoked");
+        }
+        // le contexte peut être lu plusieurs fois par requête : la base n'est interrogée qu'une fois
+        return userDetailsService.findByUsername(verifiedToken.username())
+                .filter(userDetails -> jwtUtils.validateToken(verifiedToken, userDetails))
+                .<SecurityContext>map(userDetails -> new SecurityContextImpl(
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities())))
+                .cache();
+    }
+
+    private static Mono<SecurityContext> unauthorized(String reason) {
+        return Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, reason));
+    }
+}
@@ -0,0 +1,51 @@
+package com.kata.springsecurity.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Scheduler borné pour le hachage des mots de passe (BCrypt) : ~100 ms de CPU par appel ne doivent
+ * jamais s'exécuter sur un thread de l'event loop, qui sert toutes les autres requêtes.
+ * Nombre de threads fixe et file bornée : au-delà, la demande est refusée immédiatement
+ * ({@link RejectedExecutionException}) au lieu d'attendre.
+ */
+@Component
+public class PasswordHashingScheduler {
+
+    private final Scheduler scheduler;
+
+    /**
+     * @param threads       nombre de threads (budget CPU) ; 0 = la moitié des processeurs
+     * @param queueCapacity demandes en attente par thread au-delà desquelles on refuse
+     */
+    public PasswordHashingScheduler(@Value("${app.password-hashing.threads:0}") int threads,
+                                    @Value("${app.password-hashing.queue-capacity:100}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, queueCapacity, "password-hashing", 60, true);
+    }
+
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Exécute la tâche sur les threads de hachage.
+     *
+     * @return un Mono en erreur avec {@link RejectedExecutionException} si la file est pleine
+     */
+    public <T> Mono<T> submit(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,65 @@
+package com.kata.springsecurity.config;
+
+
+import com.kata.springsecurity.service.CustomUserDetailService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+
+
+@Configuration
+@AllArgsConstructor
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    private final CustomUserDetailService customUserDetailService;
+    private final JWTUtils jwtUtils;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+
+    @Bean
+    public BCryptPasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+
+    /**
+     * Vérifie le mot de passe du login ; la comparaison BCrypt s'exécute sur le scheduler de hachage, pas sur l'event loop.
+     */
+    @Bean
+    public ReactiveAuthenticationManager authenticationManager(BCryptPasswordEncoder passwordEncoder, PasswordHashingScheduler passwordHashingScheduler) {
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(customUserDetailService);
+        authenticationManager.setPasswordEncoder(passwordEncoder);
+        authenticationManager.setScheduler(passwordHashingScheduler.scheduler());
+        return authenticationManager;
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(new JwtServerSecurityContextRepository(jwtUtils, customUserDetailService, tokenBlacklistService, tokenWatermarkService))
+                // sans token : 403, comme la version servlet (un token refusé donne 401)
+                .exceptionHandling(exceptionHandling -> exceptionHandling
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .authorizeExchange(authorizeExchange -> authorizeExchange
+                        .pathMatchers("/api/auth/*").permitAll()
+                        .pathMatchers("/api/public").permitAll()
+                        .pathMatchers("/api/protected").hasRole("USER")
+                        .pathMatchers("/api/admin").hasRole("ADMIN")
+                        .pathMatchers("/api/admin/**").hasRole("ADMIN")
+                        .anyExchange().authenticated()
+                )
+                .build();
+    }
+}
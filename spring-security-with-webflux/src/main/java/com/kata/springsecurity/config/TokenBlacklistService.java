@@ -0,0 +1,78 @@
+package com.kata.springsecurity.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Blacklist des tokens révoqués, en mémoire. Toutes les opérations sont de simples accès
+ * à une ConcurrentHashMap, sans verrou ni I/O : elles s'exécutent directement sur l'event loop.
+ */
+@Service
+@Slf4j
+public class TokenBlacklistService {
+
+    // clé de taille fixe (128 bits) plutôt que le JWT complet ; valeur = expiration du token
+    private final ConcurrentHashMap<TokenDigest, Long> blacklist = new ConcurrentHashMap<>();
+    private final ExpiryBuckets<TokenDigest> expiries;
+    private final long maxEntries;
+
+    public TokenBlacklistService(@Value("${app.blacklist.max-entries:1000000}") long maxEntries,
+                                 @Value("${app.blacklist.bucket-millis:1000}") long bucketMillis) {
+        this.maxEntries = maxEntries;
+        this.expiries = new ExpiryBuckets<>(bucketMillis);
+    }
+
+    /**
+     * Ajoute le token à la blacklist
+     * @param digest empreinte du JWT à invalider
+     * @param expirationDate epoch (en ms) indiquant quand le token expire
+     * @return false si la blacklist est pleine (le token n'a pas pu être révoqué)
+     */
+    public boolean blacklist(TokenDigest digest, long expirationDate) {
+        if (expirationDate <= System.currentTimeMillis()) {
+            // déjà expiré : le parser le refusera de toute façon
+            return true;
+        }
+        if (blacklist.mappingCount() >= maxEntries) {
+            cleanupBlacklist();
+            if (blacklist.mappingCount() >= maxEntries) {
+                // borne mémoire stricte : on refuse plutôt que d'oublier une révocation existante
+                log.warn("Token blacklist is full ({} entries), revocation refused", maxEntries);
+                return false;
+            }
+        }
+        if (blacklist.putIfAbsent(digest, expirationDate) == null) {
+            expiries.schedule(digest, expirationDate);
+        }
+        return true;
+    }
+
+    public boolean isBlacklisted(TokenDigest digest) {
+        return blacklist.containsKey(digest);
+    }
+
+    public long size() {
+        return blacklist.mappingCount();
+    }
+
+    /**
+     * Retire les tokens expirés de la blacklist. Seuls les seaux échus sont parcourus.
+     * @return le nombre d'entrées retirées
+     */
+    @Scheduled(fixedRate = 10000)
+    public int cleanupBlacklist() {
+        long now = System.currentTimeMillis();
+        int[] removed = {0};
+        expiries.expire(now, digest -> {
+            Long expiration = blacklist.get(digest);
+            if (expiration != null && expiration <= now && blacklist.remove(digest, expiration)) {
+                removed[0]++;
+            }
+        });
+        return removed[0];
+    }
+}
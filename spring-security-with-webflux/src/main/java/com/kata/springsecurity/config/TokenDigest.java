@@ -0,0 +1,27 @@
+package com.kata.springsecurity.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Empreinte de taille fixe (128 bits tronqués d'un SHA-256) d'un token.
+ * Sert de clé compacte à la place du JWT complet (plusieurs centaines d'octets).
+ */
+public record TokenDigest(long hi, long lo) {
+
+    public static TokenDigest of(String token) {
+        byte[] hash = sha256().digest(token.getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(hash);
+        return new TokenDigest(buffer.getLong(), buffer.getLong());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponible", e);
+        }
+    }
+}
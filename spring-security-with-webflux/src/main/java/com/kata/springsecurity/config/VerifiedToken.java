@@ -0,0 +1,16 @@
+package com.kata.springsecurity.config;
+
+/**
+ * Résultat immuable d'une vérification de JWT : le token a été parsé et sa signature
+ * vérifiée une seule fois, les claims utiles sont ensuite partagés par le dépôt de contexte et le logout.
+ *
+ * @param username  le subject du token
+ * @param issuedAt  epoch (en ms) d'émission du token
+ * @param expiresAt epoch (en ms) d'expiration du token
+ */
+public record VerifiedToken(String username, long issuedAt, long expiresAt) {
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+}
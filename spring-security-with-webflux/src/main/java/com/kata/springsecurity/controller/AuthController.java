@@ -0,0 +1,196 @@
+package com.kata.springsecurity.controller;
+
+
+import com.kata.springsecurity.config.JWTUtils;
+import com.kata.springsecurity.config.JwtKeyStore;
+import com.kata.springsecurity.config.PasswordHashingScheduler;
+import com.kata.springsecurity.config.TokenBlacklistService;
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.config.VerifiedToken;
+import com.kata.springsecurity.entity.CustomUser;
+import com.kata.springsecurity.modele.RefreshTokenRequest;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.service.CustomUserDetailService;
+import com.kata.springsecurity.service.RefreshTokenService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import io.jsonwebtoken.JwtException;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/auth")
+@AllArgsConstructor
+@Slf4j
+public class AuthController {
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final JWTUtils jwtUtils;
+    private final CustomUserRepository userRepository;
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final CustomUserDetailService userDetailsService;
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final JwtKeyStore jwtKeyStore;
+    private final RefreshTokenService refreshTokenService;
+    private final PasswordHashingScheduler passwordHashingScheduler;
+
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> register(@RequestBody UserPresentation user) {
+        // BCrypt sur le scheduler dédié : l'event loop continue de servir les autres requêtes
+        return passwordHashingScheduler.submit(() -> bCryptPasswordEncoder.encode(user.getPassword()))
+                .flatMap(encodedPassword -> userRepository.save(CustomUser.builder()
+                        .username(user.getUsername())
+                        .password(encodedPassword)
+                        .roles(user.isAdmin() ? "ADMIN" : "USER")
+                        .build()))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                // un seul INSERT : l'index unique sur username tranche entre deux inscriptions concurrentes
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(ResponseEntity.badRequest().body("Username is already taken")))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(tooManyRequests()));
+    }
+
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> login(@RequestBody UserPresentation user) {
+        // l'AuthenticationManager vérifie le mot de passe (BCrypt) sur le même scheduler que l'inscription
+        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword()))
+                .flatMap(authenticate -> refreshTokenService.issue(user.getUsername())
+                        .<ResponseEntity<?>>map(refreshToken -> ResponseEntity.ok(authData(user.getUsername(), refreshToken)))
+                        .defaultIfEmpty(tooManySessions()))
+                .onErrorResume(BadCredentialsException.class, e -> {
+                    log.error("Invalid credentials", e);
+                    return Mono.just(ResponseEntity.badRequest().body("Invalid credentials"));
+                })
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(tooManyRequests()));
+    }
+
+
+    /**
+     * File de hachage pleine : refus immédiat, le client peut réessayer un peu plus tard.
+     */
+    private static ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many authentication requests, retry later");
+    }
+
+
+    /**
+     * Nombre maximal de familles de refresh tokens atteint : refus plutôt que de laisser grossir la table.
+     */
+    private static ResponseEntity<?> tooManySessions() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many open sessions, retry later");
+    }
+
+
+    private Map<String, Object> authData(String username, String refreshToken) {
+        Map<String, Object> authData = new HashMap<>();
+        authData.put("username", username);
+        authData.put("token", jwtUtils.generateToken(username));
+        authData.put("type", "Bearer");
+        authData.put("refreshToken", refreshToken);
+        return authData;
+    }
+
+
+    /**
+     * Renouvelle l'access token sans repasser par l'AuthenticationManager (ni BCrypt) :
+     * le refresh token présenté est consommé et remplacé par un nouveau.
+     */
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<?>> refresh(@RequestBody RefreshTokenRequest request) {
+        if (request.getRefreshToken() == null) {
+            return Mono.just(ResponseEntity.badRequest().body("No refresh token found in request"));
+        }
+        return refreshTokenService.rotate(request.getRefreshToken())
+                .flatMap(rotation -> userDetailsService.findByUsername(rotation.username())
+                        .<ResponseEntity<?>>map(userDetails -> ResponseEntity.ok(authData(userDetails.getUsername(), rotation.refreshToken())))
+                        // utilisateur supprimé depuis le login
+                        .switchIfEmpty(refreshTokenService.revoke(rotation.refreshToken()).then(Mono.empty())))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token"));
+    }
+
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<?>> logout(ServerHttpRequest request, @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7);
+            VerifiedToken verifiedToken;
+            try {
+                verifiedToken = jwtUtils.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                return Mono.just(ResponseEntity.badRequest().body("Invalid token"));
+            }
+
+            // le refresh token éventuel ne doit plus permettre d'obtenir un nouvel access token
+            Mono<Void> refreshTokenRevoked = refreshTokenRequest != null && refreshTokenRequest.getRefreshToken() != null
+                    ? refreshTokenService.revoke(refreshTokenRequest.getRefreshToken())
+                    : Mono.empty();
+            return refreshTokenRevoked.then(Mono.fromSupplier(() -> {
+                // On ajoute le token à la blacklist
+                if (!tokenBlacklistService.blacklist(TokenDigest.of(token), verifiedToken.expiresAt())) {
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Token revocation is temporarily unavailable");
+                }
+                return ResponseEntity.ok("Token revoked successfully");
+            }));
+        } else {
+            return Mono.just(ResponseEntity.badRequest().body("No Bearer token found in request"));
+        }
+    }
+
+
+    /**
+     * Révoque tous les tokens de l'utilisateur du token présenté (tous appareils confondus).
+     */
+    @PostMapping("/logout-all")
+    public Mono<ResponseEntity<?>> logoutAll(ServerHttpRequest request) {
+        String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return Mono.just(ResponseEntity.badRequest().body("No Bearer token found in request"));
+        }
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtUtils.verify(authHeader.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body("Invalid token"));
+        }
+        // le seuil ne vit que le temps d'un access token : les refresh tokens sont révoqués directement
+        return tokenWatermarkService.revokeAllTokens(verifiedToken.username())
+                .flatMap(watermark -> refreshTokenService.revokeAll(verifiedToken.username()))
+                .<ResponseEntity<?>>map(removed -> ResponseEntity.ok("All tokens revoked successfully"))
+                .defaultIfEmpty(ResponseEntity.badRequest().body("Invalid token"));
+    }
+
+
+    /**
+     * Clés publiques de vérification (JWK Set) : vide en HS256, le secret n'est jamais publié.
+     */
+    @GetMapping("/jwks")
+    public Map<String, Object> jwks() {
+        return jwtKeyStore.publicJwks();
+    }
+}
@@ -0,0 +1,37 @@
+package com.kata.springsecurity.controller;
+
+import com.kata.springsecurity.service.RefreshTokenService;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@AllArgsConstructor
+public class UserAdminController {
+
+    private final UserTokenWatermarkService tokenWatermarkService;
+    private final RefreshTokenService refreshTokenService;
+
+
+    /**
+     * Compte compromis : révoque d'un coup tous les tokens déjà émis pour l'utilisateur.
+     */
+    @PostMapping("/{username}/revoke-tokens")
+    public Mono<ResponseEntity<?>> revokeTokens(@PathVariable String username) {
+        // le seuil ne dure que le temps d'un JWT : les refresh tokens sont révoqués tout de suite
+        return tokenWatermarkService.revokeAllTokens(username)
+                .flatMap(watermark -> refreshTokenService.revokeAll(username).thenReturn(watermark))
+                .<ResponseEntity<?>>map(watermark -> ResponseEntity.ok(Map.of(
+                        "username", username,
+                        "tokensNotBefore", watermark)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,25 @@
+package com.kata.springsecurity.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+// même table que la version servlet, lue avec R2DBC (pas de JPA en réactif)
+@Table("custom_user")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class CustomUser {
+
+    @Id
+    private Long id;
+    private String username;
+    private String password;
+    private String roles;
+    // "logout everywhere" : epoch (en ms) avant lequel tous les tokens émis sont refusés
+    private long tokensNotBefore;
+}
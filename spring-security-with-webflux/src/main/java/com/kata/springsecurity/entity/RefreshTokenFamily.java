@@ -0,0 +1,29 @@
+package com.kata.springsecurity.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+// même table que la version servlet ; id attribué par l'application, donc inséré avec R2dbcEntityTemplate.insert
+@Table("refresh_token_family")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class RefreshTokenFamily {
+
+    // tiré au hasard (63 bits) : connaître l'id d'une famille suppose d'avoir eu un de ses tokens
+    @Id
+    private Long id;
+    private String username;
+    private long createdAt;
+    private long expiresAt;
+    // nombre de rotations : le token courant porte cette valeur, les tokens déjà utilisés une valeur inférieure
+    private long generation;
+    // empreinte (TokenDigest) du token courant
+    private long digestHi;
+    private long digestLo;
+}
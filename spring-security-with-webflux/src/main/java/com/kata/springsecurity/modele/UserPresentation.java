@@ -0,0 +1,16 @@
+package com.kata.springsecurity.modele;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPresentation implements Serializable {
+    private String username;
+    private String password;
+    private boolean isAdmin;
+}
@@ -0,0 +1,12 @@
+package com.kata.springsecurity.repository;
+
+import com.kata.springsecurity.entity.CustomUser;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface CustomUserRepository extends ReactiveCrudRepository<CustomUser, Long> {
+    Mono<CustomUser> findByUsername(String username);
+
+    Flux<CustomUser> findByTokensNotBeforeGreaterThan(long tokensNotBefore);
+}
@@ -0,0 +1,32 @@
+package com.kata.springsecurity.repository;
+
+import com.kata.springsecurity.entity.RefreshTokenFamily;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface RefreshTokenFamilyRepository extends ReactiveCrudRepository<RefreshTokenFamily, Long> {
+
+    /**
+     * Rotation : compare-and-set sur la génération lue, une seule requête concurrente l'emporte.
+     *
+     * @return 0 si la famille a disparu ou a déjà tourné
+     */
+    @Modifying
+    @Query("UPDATE refresh_token_family SET generation = generation + 1, digest_hi = :digestHi, digest_lo = :digestLo,"
+            + " expires_at = :expiresAt WHERE id = :id AND generation = :generation")
+    Mono<Integer> rotate(long id, long generation, long digestHi, long digestLo, long expiresAt);
+
+    @Modifying
+    @Query("DELETE FROM refresh_token_family WHERE id = :id")
+    Mono<Integer> deleteFamily(long id);
+
+    @Modifying
+    @Query("DELETE FROM refresh_token_family WHERE username = :username")
+    Mono<Integer> deleteByUsername(String username);
+
+    @Modifying
+    @Query("DELETE FROM refresh_token_family WHERE expires_at <= :now")
+    Mono<Integer> deleteExpired(long now);
+}
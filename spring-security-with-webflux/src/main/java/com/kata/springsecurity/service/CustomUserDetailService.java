@@ -0,0 +1,31 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.repository.CustomUserRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Chargement des utilisateurs par R2DBC : la requête ne bloque aucun thread, le résultat
+ * arrive sur l'event loop quand la base a répondu. Vide si l'utilisateur n'existe pas.
+ */
+@Service
+@AllArgsConstructor
+public class CustomUserDetailService implements ReactiveUserDetailsService {
+
+    private final CustomUserRepository userRepository;
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .map(myUser -> User.builder()
+                        .username(myUser.getUsername())
+                        .password(myUser.getPassword())
+                        .roles(myUser.getRoles().split(","))
+                        .build());
+    }
+}
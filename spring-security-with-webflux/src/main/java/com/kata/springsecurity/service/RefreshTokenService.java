@@ -0,0 +1,212 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.config.TokenDigest;
+import com.kata.springsecurity.entity.RefreshTokenFamily;
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresh tokens opaques, à usage unique, gardés en base (table refresh_token_family, partagée par les noeuds).
+ * <p>
+ * Chaque login ouvre une "famille" ; chaque refresh remplace le token courant de la famille par un
+ * nouveau (rotation). Le token porte l'id de sa famille et sa génération (nombre de rotations) : seule
+ * l'empreinte du token courant est gardée, une ligne par famille. Présenter un token d'une génération déjà
+ * dépassée (déjà utilisé, donc probablement volé) révoque toute la famille : le voleur comme l'utilisateur
+ * légitime doivent se reconnecter. "Logout everywhere" supprime directement les familles de l'utilisateur.
+ * <p>
+ * Un refresh coûte une lecture par clé primaire et un update compare-and-set (R2DBC), sans BCrypt.
+ * Le nombre de familles est borné par max-families : au-delà, le login est refusé plutôt que de laisser grossir la table.
+ */
+@Service
+@Slf4j
+// compte les familles à l'initialisation : après schema.sql
+@DependsOnDatabaseInitialization
+public class RefreshTokenService {
+
+    // id de famille (8 octets) + génération (8 octets) + aléa (24 octets)
+    private static final int TOKEN_BYTES = 40;
+    private static final int SECRET_OFFSET = 16;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final long refreshTokenLifetime;
+    private final long maxFamilies;
+    // recompté en base à chaque purge, tenu à jour entre deux par ce noeud (les autres noeuds n'y apparaissent qu'à la purge)
+    private final AtomicLong familyCount = new AtomicLong();
+
+    public RefreshTokenService(RefreshTokenFamilyRepository familyRepository,
+                               R2dbcEntityTemplate entityTemplate,
+                               @Value("${app.refresh-token.expiration-time:7d}") Duration refreshTokenLifetime,
+                               @Value("${app.refresh-token.max-families:1000000}") long maxFamilies) {
+        this.familyRepository = familyRepository;
+        this.entityTemplate = entityTemplate;
+        this.refreshTokenLifetime = refreshTokenLifetime.toMillis();
+        this.maxFamilies = maxFamilies;
+    }
+
+    // au démarrage, hors event loop : attendre la base est acceptable ici
+    @PostConstruct
+    void countFamilies() {
+        familyCount.set(familyRepository.count().block());
+    }
+
+    /**
+     * Ouvre une nouvelle famille pour l'utilisateur (login).
+     *
+     * @return vide si le nombre maximal de familles est atteint
+     */
+    public Mono<String> issue(String username) {
+        if (familyCount.get() >= maxFamilies) {
+            log.warn("Refresh token families limit reached ({}), login refused", maxFamilies);
+            return Mono.empty();
+        }
+        long now = System.currentTimeMillis();
+        // aléatoire : un id de famille ne se devine pas (une collision sur 63 bits échoue à l'insertion)
+        long familyId = secureRandom.nextLong() & Long.MAX_VALUE;
+        String refreshToken = newToken(familyId, 0);
+        TokenDigest digest = TokenDigest.of(refreshToken);
+        return entityTemplate.insert(RefreshTokenFamily.builder()
+                        .id(familyId)
+                        .username(username)
+                        .createdAt(now)
+                        .expiresAt(now + refreshTokenLifetime)
+                        .generation(0)
+                        .digestHi(digest.hi())
+                        .digestLo(digest.lo())
+                        .build())
+                .doOnNext(family -> familyCount.incrementAndGet())
+                .thenReturn(refreshToken);
+    }
+
+    /**
+     * Consomme le refresh token et en émet un nouveau dans la même famille.
+     *
+     * @return vide si le token est inconnu, expiré, révoqué ou rejoué
+     */
+    public Mono<Rotation> rotate(String refreshToken) {
+        PresentedToken presented = PresentedToken.parse(refreshToken);
+        if (presented == null) {
+            return Mono.empty();
+        }
+        return familyRepository.findById(presented.familyId())
+                .filter(family -> family.getExpiresAt() > System.currentTimeMillis())
+                .flatMap(family -> {
+                    if (presented.generation() < family.getGeneration()) {
+                        // token déjà utilisé : rejeu, on révoque la famille
+                        return revokeFamily(family, "reuse").then(Mono.empty());
+                    }
+                    if (!presented.isCurrentOf(family)) {
+                        return Mono.empty();
+                    }
+                    String nextToken = newToken(family.getId(), family.getGeneration() + 1);
+                    TokenDigest nextDigest = TokenDigest.of(nextToken);
+                    return familyRepository.rotate(family.getId(), family.getGeneration(), nextDigest.hi(), nextDigest.lo(),
+                                    System.currentTimeMillis() + refreshTokenLifetime)
+                            .flatMap(updated -> updated > 0
+                                    ? Mono.just(new Rotation(family.getUsername(), nextToken))
+                                    // le même token présenté deux fois en même temps (ou famille révoquée entre-temps) : rejeu
+                                    : revokeFamily(family, "concurrent reuse").then(Mono.empty()));
+                });
+    }
+
+    /**
+     * Révoque la famille du refresh token (logout).
+     */
+    public Mono<Void> revoke(String refreshToken) {
+        PresentedToken presented = PresentedToken.parse(refreshToken);
+        if (presented == null) {
+            return Mono.empty();
+        }
+        return familyRepository.findById(presented.familyId())
+                .filter(family -> presented.generation() < family.getGeneration() || presented.isCurrentOf(family))
+                .flatMap(family -> familyRepository.deleteFamily(family.getId()))
+                .doOnNext(removed -> familyCount.addAndGet(-removed))
+                .then();
+    }
+
+    /**
+     * Révoque toutes les familles de l'utilisateur ("logout everywhere", révocation par un admin), sur tous les noeuds.
+     *
+     * @return le nombre de familles révoquées
+     */
+    public Mono<Integer> revokeAll(String username) {
+        return familyRepository.deleteByUsername(username)
+                .doOnNext(removed -> familyCount.addAndGet(-removed));
+    }
+
+    public long familyCount() {
+        return familyCount.get();
+    }
+
+    /**
+     * Supprime les familles expirées et recompte la table (thread du scheduler, hors event loop).
+     */
+    @Scheduled(fixedRate = 60000)
+    public int cleanupExpiredTokens() {
+        int removed = familyRepository.deleteExpired(System.currentTimeMillis()).block();
+        familyCount.set(familyRepository.count().block());
+        return removed;
+    }
+
+    private Mono<Integer> revokeFamily(RefreshTokenFamily family, String reason) {
+        return familyRepository.deleteFamily(family.getId())
+                .filter(removed -> removed > 0)
+                .doOnNext(removed -> {
+                    familyCount.addAndGet(-removed);
+                    log.warn("Refresh token {} detected for user {}, token family revoked", reason, family.getUsername());
+                });
+    }
+
+    private String newToken(long familyId, long generation) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        ByteBuffer.wrap(bytes).putLong(familyId).putLong(generation);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private record PresentedToken(long familyId, long generation, TokenDigest digest) {
+
+        // null si le token n'a pas le format d'un refresh token
+        static PresentedToken parse(String refreshToken) {
+            byte[] bytes;
+            try {
+                bytes = Base64.getUrlDecoder().decode(refreshToken);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (bytes.length != TOKEN_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, SECRET_OFFSET);
+            return new PresentedToken(buffer.getLong(), buffer.getLong(), TokenDigest.of(refreshToken));
+        }
+
+        // la génération seule ne prouve rien : l'empreinte doit être celle du token courant
+        boolean isCurrentOf(RefreshTokenFamily family) {
+            return generation == family.getGeneration()
+                    && digest.hi() == family.getDigestHi()
+                    && digest.lo() == family.getDigestLo();
+        }
+    }
+
+    /**
+     * @param username     propriétaire de la famille
+     * @param refreshToken le nouveau refresh token, à renvoyer au client
+     */
+    public record Rotation(String username, String refreshToken) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.kata.springsecurity.service;
+
+import com.kata.springsecurity.repository.CustomUserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Logout everywhere" : pour chaque utilisateur, date avant laquelle tous ses tokens sont refusés.
+ * La vérification par requête ({@link #notBefore(String)}) est une lecture de map, sans accès à la base ;
+ * seule la révocation écrit en base.
+ */
+@Service
+@Slf4j
+// lit la base à l'initialisation : après schema.sql
+@DependsOnDatabaseInitialization
+public class UserTokenWatermarkService {
+
+    private final CustomUserRepository userRepository;
+    private final long maxTokenLifetime;
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+
+    public UserTokenWatermarkService(CustomUserRepository userRepository,
+                                     @Value("${app.expiration-time}") long maxTokenLifetime) {
+        this.userRepository = userRepository;
+        this.maxTokenLifetime = maxTokenLifetime;
+    }
+
+    // au démarrage, hors event loop : attendre la base est acceptable ici
+    @PostConstruct
+    void loadWatermarks() {
+        userRepository.findByTokensNotBeforeGreaterThan(System.currentTimeMillis() - maxTokenLifetime)
+                .doOnNext(user -> watermarks.put(user.getUsername(), user.getTokensNotBefore()))
+                .blockLast();
+        log.debug("Loaded {} user token watermarks", watermarks.size());
+    }
+
+    /**
+     * @return epoch (en ms) avant lequel les tokens de l'utilisateur sont refusés, 0 si aucun
+     */
+    public long notBefore(String username) {
+        Long watermark = watermarks.get(username);
+        return watermark != null ? watermark : 0L;
+    }
+
+    /**
+     * Révoque tous les tokens déjà émis pour l'utilisateur.
+     * Le claim iat est à la seconde : le seuil est arrondi à la seconde suivante, un token émis
+     * dans la même seconde que la révocation est donc refusé lui aussi.
+     *
+     * @return le nouveau seuil, ou vide si l'utilisateur n'existe pas
+     */
+    public Mono<Long> revokeAllTokens(String username) {
+        return userRepository.findByUsername(username)
+                .flatMap(customUser -> {
+                    long watermark = Math.max(customUser.getTokensNotBefore(), (System.currentTimeMillis() / 1000 + 1) * 1000);
+                    customUser.setTokensNotBefore(watermark);
+                    return userRepository.save(customUser).thenReturn(watermark);
+                })
+                .doOnNext(watermark -> watermarks.merge(username, watermark, Math::max));
+    }
+
+    /**
+     * Oublie les seuils plus anciens que la durée de vie d'un token : ils ne peuvent plus rien refuser.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void cleanupWatermarks() {
+        long horizon = System.currentTimeMillis() - maxTokenLifetime;
+        watermarks.values().removeIf(watermark -> watermark < horizon);
+    }
+}
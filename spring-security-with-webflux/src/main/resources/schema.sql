@@ -0,0 +1,25 @@
+CREATE TABLE IF NOT EXISTS custom_user (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    roles VARCHAR(255) NOT NULL,
+    tokens_not_before BIGINT NOT NULL DEFAULT 0
+    );
+
+-- un seul compte par username : l'inscription insère directement, l'index tranche entre deux inscriptions concurrentes
+CREATE UNIQUE INDEX IF NOT EXISTS custom_user_username_idx ON custom_user (username);
+
+-- Familles de refresh tokens (RefreshTokenService) : une ligne par login, partagée par tous les noeuds.
+-- Seule l'empreinte du token courant est gardée ; generation (portée aussi par le token) repère le rejeu d'un token déjà utilisé
+CREATE TABLE IF NOT EXISTS refresh_token_family (
+    id BIGINT NOT NULL PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    created_at BIGINT NOT NULL,
+    expires_at BIGINT NOT NULL,
+    generation BIGINT NOT NULL,
+    digest_hi BIGINT NOT NULL,
+    digest_lo BIGINT NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS refresh_token_family_username_idx ON refresh_token_family (username);
+CREATE INDEX IF NOT EXISTS refresh_token_family_expires_at_idx ON refresh_token_family (expires_at);
@@ -0,0 +1,146 @@
+package com.kata.springsecurity.controller;
+
+import com.kata.springsecurity.modele.RefreshTokenRequest;
+import com.kata.springsecurity.modele.UserPresentation;
+import com.kata.springsecurity.repository.CustomUserRepository;
+import com.kata.springsecurity.repository.RefreshTokenFamilyRepository;
+import com.kata.springsecurity.service.UserTokenWatermarkService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Map;
+
+// base H2 embarquée (R2DBC) : même contrat /api/auth/* et /api/* que la version servlet ;
+// access tokens de 2 s pour dépasser leur durée de vie
+@SpringBootTest(properties = "app.expiration-time=2000")
+@AutoConfigureWebTestClient
+class AuthControllerIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    CustomUserRepository customUserRepository;
+
+    @Autowired
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    @Autowired
+    UserTokenWatermarkService tokenWatermarkService;
+
+    @BeforeEach
+    void setUp() {
+        customUserRepository.deleteAll().block();
+        refreshTokenFamilyRepository.deleteAll().block();
+    }
+
+    @Test
+    void registerLoginAccessAndLogout() {
+        webTestClient.post().uri("/api/auth/register")
+                .bodyValue(new UserPresentation("alice", "secret", false))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/api/auth/register")
+                .bodyValue(new UserPresentation("alice", "secret", false))
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.post().uri("/api/auth/login")
+                .bodyValue(new UserPresentation("alice", "wrong", false))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        String token = (String) login("alice", "secret").get("token");
+
+        webTestClient.get().uri("/api/public")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/api/protected")
+                .exchange()
+                .expectStatus().isForbidden();
+        webTestClient.get().uri("/api/protected")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("This is a protected endpoint. You are authenticated!");
+        webTestClient.get().uri("/api/admin")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isForbidden();
+
+        webTestClient.post().uri("/api/auth/logout")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Token revoked successfully");
+        webTestClient.get().uri("/api/protected")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized();
+        webTestClient.get().uri("/api/protected")
+                .header("Authorization", "Bearer not-a-jwt")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void refreshTokenRotatesAndReuseRevokesTheFamily() {
+        webTestClient.post().uri("/api/auth/register")
+                .bodyValue(new UserPresentation("carol", "secret", false))
+                .exchange()
+                .expectStatus().isOk();
+        String firstRefreshToken = (String) login("carol", "secret").get("refreshToken");
+
+        Map<String, Object> refreshed = refresh(firstRefreshToken)
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .returnResult().getResponseBody();
+        webTestClient.get().uri("/api/protected")
+                .header("Authorization", "Bearer " + refreshed.get("token"))
+                .exchange()
+                .expectStatus().isOk();
+
+        // rejeu de l'ancien refresh token : refusé, et toute la famille est révoquée
+        refresh(firstRefreshToken).expectStatus().isUnauthorized();
+        refresh((String) refreshed.get("refreshToken")).expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void logoutAllRevokesRefreshTokensBeyondTheAccessTokenLifetime() throws InterruptedException {
+        webTestClient.post().uri("/api/auth/register")
+                .bodyValue(new UserPresentation("dave", "secret", false))
+                .exchange()
+                .expectStatus().isOk();
+        Map<String, Object> login = login("dave", "secret");
+
+        webTestClient.post().uri("/api/auth/logout-all")
+                .header("Authorization", "Bearer " + login.get("token"))
+                .exchange()
+                .expectStatus().isOk();
+
+        // le seuil du logout-all est oublié une fois la durée de vie des access tokens passée
+        Thread.sleep(2500);
+        tokenWatermarkService.cleanupWatermarks();
+
+        refresh((String) login.get("refreshToken")).expectStatus().isUnauthorized();
+    }
+
+    private Map<String, Object> login(String username, String password) {
+        return webTestClient.post().uri("/api/auth/login")
+                .bodyValue(new UserPresentation(username, password, false))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .returnResult().getResponseBody();
+    }
+
+    private WebTestClient.ResponseSpec refresh(String refreshToken) {
+        return webTestClient.post().uri("/api/auth/refresh")
+                .bodyValue(new RefreshTokenRequest(refreshToken))
+                .exchange();
+    }
+}